@@ -0,0 +1,101 @@
+package benchmarks;
+
+import parser.ComputationNode;
+import parser.ComputationNodeType;
+import org.openjdk.jmh.annotations.*;
+import spl.lae.KernelVariant;
+import spl.lae.LinearAlgebraEngine;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end LinearAlgebraEngine.run on generated trees.
+ * Engine construction and tree building happen outside the measured region; the engine's
+ * console output is discarded so it doesn't dominate small runs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EngineBenchmark {
+
+    @Param({"128", "512"})
+    public int size;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    // fraction of non-zero entries in the left operands
+    @Param({"1.0", "0.05"})
+    public double density;
+
+    // AUTO lets the planner choose; anything else is forced where it applies
+    @Param({"AUTO", "NAIVE", "TILED", "STRASSEN", "SPARSE"})
+    public String kernel;
+
+    // MULTIPLY: A * B, EXAMPLE: (A * B) + C like example.json, CHAIN: -(T(A * B) + C)
+    @Param({"MULTIPLY", "EXAMPLE", "CHAIN"})
+    public String expression;
+
+    private double[][] a, b, c;
+    private PrintStream originalOut;
+
+    private LinearAlgebraEngine engine;
+    private ComputationNode root;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+        a = Fixtures.dense(size, size, density, 1);
+        b = Fixtures.dense(size, size, 1.0, 2);
+        c = Fixtures.dense(size, size, 1.0, 3);
+
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() {
+        System.setOut(originalOut);
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpInvocation() {
+        engine = new LinearAlgebraEngine(threads);
+        if (!kernel.equals("AUTO"))
+            engine.setMultiplyKernel(KernelVariant.valueOf(kernel));
+        engine.setStrassenCutoff(64);
+
+        // the engine consumes its tree and mutates operand rows, so every run gets fresh copies
+        ComputationNode product = node(ComputationNodeType.MULTIPLY, leaf(a), leaf(b));
+        switch (expression) {
+            case "EXAMPLE":
+                root = node(ComputationNodeType.ADD, product, leaf(c));
+                break;
+            case "CHAIN":
+                root = node(ComputationNodeType.NEGATE,
+                        node(ComputationNodeType.ADD, node(ComputationNodeType.TRANSPOSE, product), leaf(c)));
+                break;
+            default:
+                root = product;
+        }
+    }
+
+    @Benchmark
+    public double[][] run() {
+        return engine.run(root).getMatrix();
+    }
+
+    private static ComputationNode node(ComputationNodeType type, ComputationNode... children) {
+        return new ComputationNode(type, new ArrayList<>(List.of(children)));
+    }
+
+    private static ComputationNode leaf(double[][] m) {
+        return new ComputationNode(Fixtures.copy(m));
+    }
+}
@@ -0,0 +1,39 @@
+package benchmarks;
+
+import java.util.Random;
+
+/**
+ * Deterministic inputs shared by the benchmarks.
+ */
+final class Fixtures {
+
+    private Fixtures() {}
+
+    static double[] vector(int size, long seed) {
+        Random rand = new Random(seed);
+        double[] v = new double[size];
+        for (int i = 0; i < size; i++)
+            v[i] = rand.nextDouble() * 2 - 1;
+        return v;
+    }
+
+    static double[][] dense(int rows, int cols, double density, long seed) {
+        /// values in [-1, 1) scaled by 1/cols so repeated products stay bounded;
+        /// roughly `density` of the entries are non-zero
+
+        Random rand = new Random(seed);
+        double[][] m = new double[rows][cols];
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++)
+                if (rand.nextDouble() < density)
+                    m[i][j] = (rand.nextDouble() * 2 - 1) / cols;
+        return m;
+    }
+
+    static double[][] copy(double[][] m) {
+        double[][] result = new double[m.length][];
+        for (int i = 0; i < m.length; i++)
+            result[i] = m[i].clone();
+        return result;
+    }
+}
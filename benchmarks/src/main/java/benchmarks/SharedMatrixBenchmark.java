@@ -0,0 +1,50 @@
+package benchmarks;
+
+import memory.SharedMatrix;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copy-in / copy-out costs paid around every engine step.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SharedMatrixBenchmark {
+
+    @Param({"64", "512", "2048"})
+    public int size;
+
+    private double[][] source;
+    private SharedMatrix rowMajor;
+    private SharedMatrix columnMajor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        source = Fixtures.dense(size, size, 1.0, 1);
+        rowMajor = new SharedMatrix(source);
+        columnMajor = new SharedMatrix();
+        columnMajor.loadColumnMajor(source);
+    }
+
+    @Benchmark
+    public double[][] readRowMajorFromRows() {
+        return rowMajor.readRowMajor();
+    }
+
+    @Benchmark
+    public double[][] readRowMajorFromColumns() {
+        return columnMajor.readRowMajor();
+    }
+
+    @Benchmark
+    public SharedMatrix loadColumnMajor() {
+        SharedMatrix matrix = new SharedMatrix();
+        matrix.loadColumnMajor(source);
+        return matrix;
+    }
+}
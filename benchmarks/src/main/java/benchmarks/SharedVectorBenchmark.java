@@ -0,0 +1,66 @@
+package benchmarks;
+
+import memory.SharedMatrix;
+import memory.SharedVector;
+import memory.VectorOrientation;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-threaded cost of the SharedVector kernels, locking included.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SharedVectorBenchmark {
+
+    @Param({"64", "512", "4096"})
+    public int size;
+
+    private SharedVector row;
+    private SharedVector other;
+    private SharedVector column;
+    private SharedMatrix columnMajor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        row = new SharedVector(Fixtures.vector(size, 1), VectorOrientation.ROW_MAJOR);
+        other = new SharedVector(Fixtures.vector(size, 2), VectorOrientation.ROW_MAJOR);
+        column = new SharedVector(Fixtures.vector(size, 3), VectorOrientation.COLUMN_MAJOR);
+
+        // vecMatMul is O(n²) per call, so cap the matrix side to keep iterations short
+        int n = Math.min(size, 1024);
+        columnMajor = new SharedMatrix();
+        columnMajor.loadColumnMajor(Fixtures.dense(n, n, 1.0, 4));
+    }
+
+    @Benchmark
+    public void add() {
+        row.add(other);
+    }
+
+    @Benchmark
+    public double dot() {
+        return row.dot(column);
+    }
+
+    @Benchmark
+    public void vecMatMul(VecMatMulState state) {
+        state.vector.vecMatMul(columnMajor);
+    }
+
+    @State(Scope.Thread)
+    public static class VecMatMulState {
+        SharedVector vector;
+
+        @Setup(Level.Iteration)
+        public void setUp(SharedVectorBenchmark outer) {
+            // the product replaces the vector, but the matrix is square so its length stays put
+            vector = new SharedVector(Fixtures.vector(Math.min(outer.size, 1024), 5), VectorOrientation.ROW_MAJOR);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import scheduling.SchedulingPolicy;
+import scheduling.TiredExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scheduling overhead of submitAll: near-empty tasks expose handoff and barrier costs,
+ * the busier variants show how much of it is hidden behind real work.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TiredExecutorBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    @Param({"16", "1024"})
+    public int tasks;
+
+    // Blackhole.consumeCPU tokens burned per task
+    @Param({"0", "1000"})
+    public int work;
+
+    @Param({"fatigue-min", "round-robin", "least-loaded", "cache-affinity"})
+    public String policy;
+
+    // spin-then-park slots and targeted unpark instead of ArrayBlockingQueue + notifyAll
+    @Param({"false", "true"})
+    public boolean spinHandoff;
+
+    private TiredExecutor executor;
+    private List<Runnable> batch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        executor = spinHandoff
+                ? new TiredExecutor(threads, threads, 0, SchedulingPolicy.forName(policy), true)
+                : new TiredExecutor(threads, SchedulingPolicy.forName(policy), 42);
+        batch = new ArrayList<>(tasks);
+        for (int i = 0; i < tasks; i++)
+            batch.add(() -> Blackhole.consumeCPU(work));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Benchmark
+    public void submitAll() {
+        executor.submitAll(batch);
+    }
+}
@@ -0,0 +1,146 @@
+package memory;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool of double[] buffers bucketed by length, so that row and column arrays of one step
+ * can be reused by the next instead of being left to the young generation.
+ * Vectors take their length from the array, so buffers are only handed out at their exact
+ * length. Released buffers beyond the byte cap are dropped for the GC. A buffer must not be
+ * touched by anyone after it was released.
+ */
+public class BufferPool {
+
+    private final long maxBytes;
+    private final AtomicLong pooledBytes = new AtomicLong(0);
+    private final Map<Integer, ConcurrentLinkedDeque<double[]>> buckets = new ConcurrentHashMap<>();
+
+    private final LongAdder acquires = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder releases = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    public BufferPool(long maxBytes) {
+        if (maxBytes <= 0)
+            throw new IllegalArgumentException("Buffer pool size must be positive: " + maxBytes);
+        this.maxBytes = maxBytes;
+    }
+
+    public double[] acquire(int length) {
+        /// buffer of exactly this length with undefined contents (the caller overwrites all of it)
+
+        acquires.increment();
+        ConcurrentLinkedDeque<double[]> bucket = buckets.get(length);
+        double[] buffer = bucket == null ? null : bucket.pollFirst();
+        if (buffer == null)
+            return new double[length];
+
+        hits.increment();
+        pooledBytes.addAndGet(-bytes(length));
+        return buffer;
+    }
+
+    public double[] acquireZeroed(int length) {
+        /// buffer of exactly this length filled with zeros
+
+        double[] buffer = acquire(length);
+        Arrays.fill(buffer, 0);
+        return buffer;
+    }
+
+    public double[][] acquireMatrix(int rows, int cols) {
+        /// zero-filled rows × cols matrix made of pooled rows
+
+        double[][] matrix = new double[rows][];
+        for (int i = 0; i < rows; i++)
+            matrix[i] = acquireZeroed(cols);
+        return matrix;
+    }
+
+    public void release(double[] buffer) {
+        /// hand a buffer back; nobody may use it afterwards
+
+        if (buffer == null || buffer.length == 0)
+            return;
+
+        releases.increment();
+        long size = bytes(buffer.length);
+        if (pooledBytes.addAndGet(size) > maxBytes) {
+            pooledBytes.addAndGet(-size);
+            dropped.increment();
+            return;
+        }
+        buckets.computeIfAbsent(buffer.length, k -> new ConcurrentLinkedDeque<>()).addFirst(buffer);
+    }
+
+    public void release(double[][] matrix) {
+        /// hand back every row of a matrix
+
+        for (double[] row : matrix)
+            release(row);
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public long getPooledBytes() {
+        return pooledBytes.get();
+    }
+
+    public long getAcquires() {
+        return acquires.sum();
+    }
+
+    public long getHits() {
+        /// acquires served from the pool instead of a new allocation
+
+        return hits.sum();
+    }
+
+    public long getReleases() {
+        return releases.sum();
+    }
+
+    public long getDropped() {
+        /// releases left to the GC because the pool was full
+
+        return dropped.sum();
+    }
+
+    public double getReuseRate() {
+        long n = getAcquires();
+        return n == 0 ? 0 : (double) getHits() / n;
+    }
+
+    public Map<String, Object> toMap() {
+        /// snapshot suitable for JSON export
+
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("acquires", getAcquires());
+        map.put("hits", getHits());
+        map.put("reuseRate", getReuseRate());
+        map.put("releases", getReleases());
+        map.put("dropped", getDropped());
+        map.put("pooledBytes", getPooledBytes());
+        map.put("maxBytes", maxBytes);
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Buffer pool: %d acquires, %d reused (%.1f%%), %d released, %d dropped, %.2f MB pooled of %.2f MB",
+                getAcquires(), getHits(), 100 * getReuseRate(), getReleases(), getDropped(),
+                getPooledBytes() / 1048576.0, maxBytes / 1048576.0);
+    }
+
+    private static long bytes(int length) {
+        return (long) length * Double.BYTES;
+    }
+}
@@ -0,0 +1,104 @@
+package memory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock contention counters shared by the vectors of one or more {@link SharedMatrix}es.
+ * Per lock mode it counts acquisitions, acquisitions that had to wait (the lock was not
+ * free on the first try) and the total time spent waiting; it also counts how often the
+ * identity-hash tie-break in add/dot had to take the global SharedVector monitor.
+ * Vectors without stats attached take their locks with no extra work.
+ */
+public class LockStats {
+
+    private final LongAdder readAcquisitions = new LongAdder();
+    private final LongAdder readContended = new LongAdder();
+    private final LongAdder readWaitNanos = new LongAdder();
+    private final LongAdder writeAcquisitions = new LongAdder();
+    private final LongAdder writeContended = new LongAdder();
+    private final LongAdder writeWaitNanos = new LongAdder();
+    private final LongAdder tieBreaks = new LongAdder();
+
+    void recordRead(boolean contended, long waitNanos) {
+        readAcquisitions.increment();
+        if (contended) {
+            readContended.increment();
+            readWaitNanos.add(waitNanos);
+        }
+    }
+
+    void recordWrite(boolean contended, long waitNanos) {
+        writeAcquisitions.increment();
+        if (contended) {
+            writeContended.increment();
+            writeWaitNanos.add(waitNanos);
+        }
+    }
+
+    void recordTieBreak() {
+        tieBreaks.increment();
+    }
+
+    public void merge(LockStats other) {
+        /// add another set of counters into this one
+
+        readAcquisitions.add(other.getReadAcquisitions());
+        readContended.add(other.getReadContended());
+        readWaitNanos.add(other.getReadWaitNanos());
+        writeAcquisitions.add(other.getWriteAcquisitions());
+        writeContended.add(other.getWriteContended());
+        writeWaitNanos.add(other.getWriteWaitNanos());
+        tieBreaks.add(other.getTieBreaks());
+    }
+
+    public long getReadAcquisitions() {
+        return readAcquisitions.sum();
+    }
+
+    public long getReadContended() {
+        return readContended.sum();
+    }
+
+    public long getReadWaitNanos() {
+        return readWaitNanos.sum();
+    }
+
+    public long getWriteAcquisitions() {
+        return writeAcquisitions.sum();
+    }
+
+    public long getWriteContended() {
+        return writeContended.sum();
+    }
+
+    public long getWriteWaitNanos() {
+        return writeWaitNanos.sum();
+    }
+
+    public long getTieBreaks() {
+        return tieBreaks.sum();
+    }
+
+    public Map<String, Object> toMap() {
+        /// snapshot suitable for JSON export
+
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("readAcquisitions", getReadAcquisitions());
+        map.put("readContended", getReadContended());
+        map.put("readWaitNanos", getReadWaitNanos());
+        map.put("writeAcquisitions", getWriteAcquisitions());
+        map.put("writeContended", getWriteContended());
+        map.put("writeWaitNanos", getWriteWaitNanos());
+        map.put("tieBreaks", getTieBreaks());
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("read %d (%d contended, %.3f ms waited), write %d (%d contended, %.3f ms waited), tie-breaks %d",
+                getReadAcquisitions(), getReadContended(), getReadWaitNanos() / 1e6,
+                getWriteAcquisitions(), getWriteContended(), getWriteWaitNanos() / 1e6, getTieBreaks());
+    }
+}
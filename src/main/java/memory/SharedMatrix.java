@@ -7,6 +7,8 @@ import java.util.Arrays;
 public class SharedMatrix {
 
     private volatile SharedVector[] vectors = {}; // underlying vectors
+    private volatile LockStats lockStats = null; // shared by all vectors, null when not profiled
+    private volatile BufferPool bufferPool = null; // source of new arrays, null to allocate
 
     public SharedMatrix() {
         /// initialize empty matrix
@@ -28,6 +30,7 @@ public class SharedMatrix {
         for (int i = 0; i < matrix.length; i++)
             newVectors[i] = new SharedVector(matrix[i], VectorOrientation.ROW_MAJOR);
 
+        attachLockStats(newVectors, lockStats);
         SharedVector[] oldVectors = vectors;
         acquireAllVectorWriteLocks(oldVectors);
         vectors = newVectors;
@@ -41,13 +44,14 @@ public class SharedMatrix {
         SharedVector[] newVectors = new SharedVector[matrix[0].length];
 
         for (int i = 0; i < matrix[0].length; i++) {
-            double[] columnArr = new double[matrix.length];
+            double[] columnArr = newArray(matrix.length);
             for (int j = 0; j < matrix.length; j++)
                 columnArr[j] = matrix[j][i];
 
             newVectors[i] = new SharedVector(columnArr, VectorOrientation.COLUMN_MAJOR);
         }
 
+        attachLockStats(newVectors, lockStats);
         SharedVector[] oldVectors = vectors;
         acquireAllVectorWriteLocks(oldVectors);
         vectors = newVectors;
@@ -65,12 +69,12 @@ public class SharedMatrix {
         double[][] matrix;
 
         if (vectors[0].getOrientation() == VectorOrientation.ROW_MAJOR) {
-            matrix = new double[vectors.length][vectors[0].length()];
+            matrix = newMatrix(vectors.length, vectors[0].length());
             for (int i = 0; i < vectors.length; i++)
                 for (int j = 0; j < vectors[0].length(); j++)
                     matrix[i][j] = vectors[i].get(j);
         } else {
-            matrix = new double[vectors[0].length()][vectors.length];
+            matrix = newMatrix(vectors[0].length(), vectors.length);
             for (int i = 0; i < vectors[0].length(); i++)
                 for (int j = 0; j < vectors.length; j++)
                     matrix[i][j] = vectors[j].get(i);
@@ -83,6 +87,79 @@ public class SharedMatrix {
         }
     }
 
+    public void setLockStats(LockStats lockStats) {
+        /// count lock contention of every vector (current and later loaded) into lockStats,
+        /// or stop counting with null
+
+        this.lockStats = lockStats;
+        attachLockStats(vectors, lockStats);
+    }
+
+    public LockStats getLockStats() {
+        return lockStats;
+    }
+
+    public void setBufferPool(BufferPool bufferPool) {
+        /// take the column arrays of loadColumnMajor and the copies of readRowMajor from
+        /// bufferPool, or allocate them with null
+
+        this.bufferPool = bufferPool;
+    }
+
+    public BufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    public void recycle() {
+        /// hand every vector's array back to the buffer pool and leave the matrix empty;
+        /// only for arrays nobody else holds (column-major reloads, rows already copied out)
+
+        SharedVector[] oldVectors = vectors;
+        acquireAllVectorWriteLocks(oldVectors);
+        vectors = new SharedVector[0];
+        releaseAllVectorWriteLocks(oldVectors);
+
+        if (bufferPool != null)
+            for (SharedVector vector : oldVectors)
+                bufferPool.release(vector.rowArray());
+    }
+
+    public double[][] takeRowMajor() {
+        /// hand the row arrays over without copying when stored row-major (a row-major copy
+        /// otherwise); the rows stay where the threads that wrote them left them, so the matrix
+        /// must not be used afterwards
+
+        acquireAllVectorReadLocks(vectors);
+
+        try {
+            if (!isValidVector() || vectors[0].getOrientation() != VectorOrientation.ROW_MAJOR)
+                return readRowMajor();
+
+            double[][] matrix = new double[vectors.length][];
+            for (int i = 0; i < vectors.length; i++)
+                matrix[i] = vectors[i].rowArray();
+            return matrix;
+        } finally {
+            releaseAllVectorReadLocks(vectors);
+        }
+    }
+
+    public double[] takeRow(int index) {
+        /// hand over the array of one row-major row without copying; the row must not be
+        /// written afterwards
+
+        SharedVector vector = get(index);
+        vector.readLock();
+
+        try {
+            if (vector.getOrientation() != VectorOrientation.ROW_MAJOR)
+                throw new IllegalStateException("Vector is not row-major: " + index);
+            return vector.rowArray();
+        } finally {
+            vector.readUnlock();
+        }
+    }
+
     public SharedVector get(int index) {
         /// return vector at index
 
@@ -144,6 +221,23 @@ public class SharedMatrix {
 
     }
 
+    private double[] newArray(int length) {
+        BufferPool pool = bufferPool;
+        return pool == null ? new double[length] : pool.acquire(length);
+    }
+
+    private double[][] newMatrix(int rows, int cols) {
+        double[][] matrix = new double[rows][];
+        for (int i = 0; i < rows; i++)
+            matrix[i] = newArray(cols);
+        return matrix;
+    }
+
+    private static void attachLockStats(SharedVector[] vecs, LockStats stats) {
+        for (SharedVector vec : vecs)
+            vec.setLockStats(stats);
+    }
+
     private boolean isValidVector() {
 
         return (vectors != null && vectors.length != 0 && vectors[0] != null);
@@ -7,6 +7,7 @@ public class SharedVector {
     private double[] vector;
     private VectorOrientation orientation;
     private ReadWriteLock lock = new java.util.concurrent.locks.ReentrantReadWriteLock();
+    private volatile LockStats lockStats = null; // contention counters, null when not profiled
 
     public SharedVector(double[] vector, VectorOrientation orientation) {
         /// store vector data and its orientation
@@ -62,10 +63,30 @@ public class SharedVector {
         }
     }
 
+    void setLockStats(LockStats lockStats) {
+        /// attach contention counters to this vector's lock, or null to stop counting
+
+        this.lockStats = lockStats;
+    }
+
     public void writeLock() {
         /// acquire write lock
 
+        LockStats stats = lockStats;
+        if (stats == null) {
+            lock.writeLock().lock();
+            return;
+        }
+
+        // try first so uncontended acquisitions are told apart from ones that had to wait
+        if (lock.writeLock().tryLock()) {
+            stats.recordWrite(false, 0);
+            return;
+        }
+
+        long start = System.nanoTime();
         lock.writeLock().lock();
+        stats.recordWrite(true, System.nanoTime() - start);
     }
 
     public void writeUnlock() {
@@ -77,7 +98,20 @@ public class SharedVector {
     public void readLock() {
         /// acquire read lock
 
+        LockStats stats = lockStats;
+        if (stats == null) {
+            lock.readLock().lock();
+            return;
+        }
+
+        if (lock.readLock().tryLock()) {
+            stats.recordRead(false, 0);
+            return;
+        }
+
+        long start = System.nanoTime();
         lock.readLock().lock();
+        stats.recordRead(true, System.nanoTime() - start);
     }
 
     public void readUnlock() {
@@ -130,6 +164,7 @@ public class SharedVector {
         try {
             if (tieFlag)
                 synchronized (SharedVector.class) {
+                    recordTieBreak();
                     this.writeLock();
                     other.readLock();
 
@@ -148,6 +183,12 @@ public class SharedVector {
         }
     }
 
+    private void recordTieBreak() {
+        LockStats stats = lockStats;
+        if (stats != null)
+            stats.recordTieBreak();
+    }
+
     private void performAdd(SharedVector other) {
         if (this.vector.length != other.vector.length)
             throw new IllegalArgumentException("Vector Lengths don't match");
@@ -195,6 +236,7 @@ public class SharedVector {
             double sum;
             if (tieFlag)
                 synchronized (SharedVector.class) {
+                    recordTieBreak();
                     this.readLock();
                     other.readLock();
                     sum = performDot(other);
@@ -232,6 +274,12 @@ public class SharedVector {
     public void vecMatMul(SharedMatrix matrix) {
         /// compute row-vector × matrix
 
+        vecMatMul(matrix, null);
+    }
+
+    public void vecMatMul(SharedMatrix matrix, BufferPool pool) {
+        /// compute row-vector × matrix into an array taken from pool (allocated with null)
+
         // In here we locked vector write, so no one corrupts it, because we edit the object itself,
         // And also read from it, so we don't want any other threads accessing while its being
         // Worked on, and we lock matrix to reading, because we only read from it so other threads
@@ -251,7 +299,7 @@ public class SharedVector {
             if (this.length() != matrix.get(0).length())
                 throw new IllegalArgumentException("Matrix Length Mismatch");
 
-            double[] newVector = new double[matrix.length()];
+            double[] newVector = pool == null ? new double[matrix.length()] : pool.acquire(matrix.length());
             for (int i = 0; i < matrix.length(); i++)
                 newVector[i] = UnsafeDot(matrix.get(i));
 
@@ -264,6 +312,90 @@ public class SharedVector {
         }
     }
 
+    public double[] computeVecMatMul(SharedMatrix matrix) {
+        /// row-vector × matrix into a new array, leaving this vector as it is
+
+        // Same checks and math as vecMatMul, but we only read from this vector, so a read lock
+        // is enough; the caller publishes the result later with replace().
+        this.readLock();
+        acquireAllVectorReadLocks(matrix);
+
+        try {
+            if (orientation != VectorOrientation.ROW_MAJOR)
+                throw new IllegalArgumentException("Vector Orientation Should Be Row Major");
+            if (matrix.getOrientation() != VectorOrientation.COLUMN_MAJOR)
+                throw new IllegalArgumentException("Matrix Should Be Column Major");
+            if (vector.length != matrix.get(0).length())
+                throw new IllegalArgumentException("Matrix Length Mismatch");
+
+            double[] newVector = new double[matrix.length()];
+            for (int i = 0; i < matrix.length(); i++)
+                newVector[i] = UnsafeDot(matrix.get(i));
+
+            return newVector;
+        } catch (Exception e) {
+            throw new RuntimeException(e.getMessage());
+        } finally {
+            releaseAllVectorReadLocks(matrix);
+            this.readUnlock();
+        }
+    }
+
+    public double[] computeAdd(SharedVector other) {
+        /// this + other into a new array, leaving both vectors as they are
+
+        // Only read locks here, and the only writer in this scheme (replace) holds a single lock,
+        // so no cycle can form and the lock order / tie-break of add() isn't needed.
+        this.readLock();
+        other.readLock();
+
+        try {
+            if (this.vector.length != other.vector.length)
+                throw new IllegalArgumentException("Vector Lengths don't match");
+            if (this.orientation != other.orientation)
+                throw new IllegalArgumentException("Vectors Orientation don't match");
+
+            double[] sum = new double[vector.length];
+            for (int i = 0; i < vector.length; i++)
+                sum[i] = vector[i] + other.vector[i];
+
+            return sum;
+        } finally {
+            other.readUnlock();
+            this.readUnlock();
+        }
+    }
+
+    public double[] computeNegate() {
+        /// -this into a new array, leaving this vector as it is
+
+        readLock();
+
+        try {
+            double[] negated = new double[vector.length];
+            for (int i = 0; i < vector.length; i++)
+                negated[i] = -vector[i];
+
+            return negated;
+        } finally {
+            readUnlock();
+        }
+    }
+
+    double[] rowArray() {
+        /// the backing array itself, for SharedMatrix.takeRowMajor and recycle (locked by the caller)
+
+        return vector;
+    }
+
+    public void replace(double[] newVector) {
+        /// swap in data computed by one of the compute* methods (write-locked)
+
+        writeLock();
+        vector = newVector;
+        writeUnlock();
+    }
+
     private void acquireAllVectorReadLocks(SharedMatrix matrix) {
         for (int i = 0; i < matrix.length(); i++)
             matrix.get(i).readLock();
@@ -0,0 +1,126 @@
+package memory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Row-major matrix kept in a temporary file instead of the heap, for out-of-core runs.
+ * Work is done on row bands (tiles) that are memory-mapped on demand, so only the bands
+ * tasks are touching need to be resident; the file is deleted on close.
+ */
+public class TiledMatrix implements AutoCloseable {
+
+    // a single mapping can't cover more than this many bytes
+    public static final long MAX_MAPPED_BYTES = Integer.MAX_VALUE;
+
+    private final Path file;
+    private final FileChannel channel;
+    private int rows;
+    private int cols;
+
+    private TiledMatrix(Path file, int rows, int cols) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.rows = rows;
+        this.cols = cols;
+        file.toFile().deleteOnExit();
+    }
+
+    public static TiledMatrix create(Path directory, int rows, int cols) throws IOException {
+        /// zero-filled rows × cols matrix in a new temp file under directory
+
+        TiledMatrix matrix = new TiledMatrix(Files.createTempFile(directory, "lae-", ".tile"), rows, cols);
+        long bytes = matrix.getSizeInBytes();
+        if (bytes > 0)
+            matrix.channel.write(ByteBuffer.allocate(1), bytes - 1); // sparse until written
+        return matrix;
+    }
+
+    public static TiledMatrix appendable(Path directory) throws IOException {
+        /// empty matrix to be filled row by row with appendRow (the first row fixes the width)
+
+        return new TiledMatrix(Files.createTempFile(directory, "lae-", ".tile"), 0, -1);
+    }
+
+    public static TiledMatrix of(double[][] matrix, Path directory) throws IOException {
+        /// copy a heap matrix to disk
+
+        TiledMatrix tiled = appendable(directory);
+        for (double[] row : matrix)
+            tiled.appendRow(row);
+        return tiled;
+    }
+
+    public synchronized void appendRow(double[] row) throws IOException {
+        /// write one more row at the end of the file
+
+        if (cols < 0)
+            cols = row.length;
+        if (row.length != cols)
+            throw new IllegalArgumentException("Inconsistent row sizes in matrix.");
+
+        ByteBuffer buffer = ByteBuffer.allocate(cols * Double.BYTES).order(ByteOrder.nativeOrder());
+        buffer.asDoubleBuffer().put(row);
+        long position = (long) rows * cols * Double.BYTES;
+        while (buffer.hasRemaining())
+            position += channel.write(buffer, position);
+        rows++;
+    }
+
+    public synchronized int getRows() {
+        return rows;
+    }
+
+    public synchronized int getCols() {
+        return Math.max(0, cols);
+    }
+
+    public long getSizeInBytes() {
+        return (long) getRows() * getCols() * Double.BYTES;
+    }
+
+    public DoubleBuffer mapRows(int from, int to, boolean writable) throws IOException {
+        /// map rows [from, to) as one row-major buffer; writes to a writable map go to the file
+
+        long rowBytes = (long) getCols() * Double.BYTES;
+        long bytes = (to - from) * rowBytes;
+        if (from < 0 || to > getRows() || from > to)
+            throw new IndexOutOfBoundsException("Rows out of bounds: [" + from + ", " + to + ")");
+        if (bytes > MAX_MAPPED_BYTES)
+            throw new IllegalArgumentException("Tile too large to map: " + bytes + " bytes");
+
+        return channel.map(writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY,
+                from * rowBytes, bytes).order(ByteOrder.nativeOrder()).asDoubleBuffer();
+    }
+
+    public double[] readRow(int index) throws IOException {
+        /// copy one row into the heap
+
+        double[] row = new double[getCols()];
+        mapRows(index, index + 1, false).get(row);
+        return row;
+    }
+
+    public double[][] toArray() throws IOException {
+        /// copy the whole matrix into the heap (only for matrices that fit)
+
+        double[][] matrix = new double[getRows()][];
+        for (int i = 0; i < matrix.length; i++)
+            matrix[i] = readRow(i);
+        return matrix;
+    }
+
+    @Override
+    public void close() throws IOException {
+        /// drop the backing file; buffers still mapped stay valid until collected
+
+        channel.close();
+        Files.deleteIfExists(file);
+    }
+}
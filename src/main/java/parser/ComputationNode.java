@@ -1,5 +1,7 @@
 package parser;
 
+import memory.TiledMatrix;
+
 import java.util.List;
 
 public class ComputationNode {
@@ -7,6 +9,9 @@ public class ComputationNode {
     private ComputationNodeType nodeType;
     private List<ComputationNode> children = null;
     private double[][] matrix = null; // only used for MATRIX nodes
+    private TiledMatrix tiledMatrix = null; // disk-backed instead, for out-of-core runs
+    private MatrixStructure structure = null; // detected by InputParser, null when unknown
+    private int exponent = -1; // only used for POWER nodes
 
     public ComputationNode(String operatorStr, List<ComputationNode> children) throws IllegalArgumentException {
         this.nodeType = mapOperator(operatorStr);
@@ -23,6 +28,8 @@ public class ComputationNode {
                 return ComputationNodeType.NEGATE;
             case "T":
                 return ComputationNodeType.TRANSPOSE;
+            case "^":
+                return ComputationNodeType.POWER;
             default:
                 throw new IllegalArgumentException("Unknown operator: " + operatorStr);
         }
@@ -38,6 +45,11 @@ public class ComputationNode {
         this.matrix = matrix;
     }
 
+    public ComputationNode(TiledMatrix tiledMatrix) {
+        this.nodeType = ComputationNodeType.MATRIX;
+        this.tiledMatrix = tiledMatrix;
+    }
+
     public ComputationNodeType getNodeType() {
         return nodeType;
     }
@@ -47,23 +59,27 @@ public class ComputationNode {
     }
 
     /**
-     * Recursively finds the first resolvable node in the tree.
+     * Finds the first resolvable node in the tree.
      * A resolvable node is defined as a node that is not of type MATRIX,
      * with children that are all of type MATRIX.
+     * Walks down iteratively, always into the first non-MATRIX child, so the depth of
+     * the tree is not limited by the thread's stack.
      */
     public ComputationNode findResolvable() {
         if (nodeType == ComputationNodeType.MATRIX) {
             return null;
         }
-        for (ComputationNode child : children) {
-            if (child.getNodeType() != ComputationNodeType.MATRIX) {
-                ComputationNode res = child.findResolvable();
-                if (res != null) {
-                    return res;
+        ComputationNode current = this;
+        descend:
+        while (true) {
+            for (ComputationNode child : current.children) {
+                if (child.getNodeType() != ComputationNodeType.MATRIX) {
+                    current = child;
+                    continue descend;
                 }
             }
+            return current;
         }
-        return this;
     }
 
     /**
@@ -71,13 +87,16 @@ public class ComputationNode {
      * are nested in a left-associative manner.
      * For example, A + B + C becomes (A + B) + C.
      * Effectively, this converts n-ary operations (n > 2) into binary operations.
+     * The new nodes are nested in a loop rather than recursively, so very wide
+     * operators don't overflow the stack.
      */
     public void associativeNesting() {
-        if (children != null && children.size() > 2) {
-            ComputationNode lastChild = children.remove(children.size() - 1);
-            ComputationNode newNode = new ComputationNode(nodeType, children);
-            children = List.of(newNode, lastChild);
-            newNode.associativeNesting();
+        ComputationNode current = this;
+        while (current.children != null && current.children.size() > 2) {
+            ComputationNode lastChild = current.children.remove(current.children.size() - 1);
+            ComputationNode newNode = new ComputationNode(current.nodeType, current.children);
+            current.children = List.of(newNode, lastChild);
+            current = newNode;
         }
     }
 
@@ -88,6 +107,54 @@ public class ComputationNode {
         this.nodeType = ComputationNodeType.MATRIX;
         this.children = null;
         this.matrix = matrix;
+        this.structure = null;
+    }
+
+    /**
+     * Resolves this node with a disk-backed matrix (out-of-core runs).
+     */
+    public void resolve(TiledMatrix tiledMatrix) {
+        resolve((double[][]) null);
+        this.tiledMatrix = tiledMatrix;
+    }
+
+    /**
+     * Records the special structure of this MATRIX node's values (see MatrixStructure.detect).
+     */
+    public void setStructure(MatrixStructure structure) {
+        this.structure = structure;
+    }
+
+    /**
+     * Structure of this MATRIX node's values, or null when it was never detected.
+     */
+    public MatrixStructure getStructure() {
+        return structure;
+    }
+
+    /**
+     * Sets the exponent of a POWER node.
+     */
+    public void setExponent(int exponent) {
+        this.exponent = exponent;
+    }
+
+    /**
+     * Exponent of a POWER node, or -1 when none was given.
+     */
+    public int getExponent() {
+        return exponent;
+    }
+
+    public boolean isTiled() {
+        return tiledMatrix != null;
+    }
+
+    public TiledMatrix getTiledMatrix() {
+        if (tiledMatrix == null) {
+            throw new IllegalStateException("This node does not contain a tiled matrix.");
+        }
+        return tiledMatrix;
     }
 
     public double[][] getMatrix() {
@@ -9,5 +9,6 @@ public enum ComputationNodeType {
     MULTIPLY,
     NEGATE,
     TRANSPOSE,
+    POWER, // unary, raises its square operand to the node's exponent
     MATRIX,
 }
\ No newline at end of file
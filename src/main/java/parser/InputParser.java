@@ -1,68 +1,203 @@
 package parser;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamReadConstraints;
+import memory.TiledMatrix;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.text.ParseException;
 import java.util.*;
 
 public class InputParser {
 
-    private final ObjectMapper mapper = new ObjectMapper();
+    // Nesting is handled with an explicit stack below, so the reader itself needs no depth cap
+    private final JsonFactory factory = JsonFactory.builder()
+            .streamReadConstraints(StreamReadConstraints.builder().maxNestingDepth(Integer.MAX_VALUE).build())
+            .build();
+
+    private Path spillDirectory = null;
+
+    public void setSpillDirectory(Path spillDirectory) {
+        /// write every matrix operand row by row into a disk-backed TiledMatrix in this
+        /// directory instead of the heap (out-of-core runs), or null to keep them in memory
+
+        this.spillDirectory = spillDirectory;
+    }
 
     public ComputationNode parse(String inputPath) throws ParseException {
-        try {
-            File inputFile = new File(inputPath);
-            JsonNode rootJsonNode = mapper.readTree(inputFile);
-            ComputationNode root = this.parseJsonNode(rootJsonNode);
+        ParseEvent event = new ParseEvent();
+        event.path = inputPath;
+        event.begin();
+
+        File file = new File(inputPath);
+        try (JsonParser jsonParser = factory.createParser(file)) {
+            if (jsonParser.nextToken() == null)
+                throw new ParseException("Failed to read the input JSON file: empty input", 0);
+            ComputationNode root = this.parseJsonNode(jsonParser);
+            event.succeeded = true;
             return root;
         } catch (IOException e) {
             throw new ParseException("Failed to read the input JSON file: " + e.getMessage(), 0);
+        } finally {
+            if (event.shouldCommit()) {
+                event.bytes = file.length();
+                event.commit();
+            }
         }
     }
 
-    private ComputationNode parseJsonNode(JsonNode jsonNode) throws ParseException {
-        if (jsonNode.has("operator") && jsonNode.has("operands")) {
-            String operatorStr = jsonNode.get("operator").asText();
-            ArrayNode operandJsonNodes = (ArrayNode) jsonNode.get("operands");
-            List<ComputationNode> operands = new ArrayList<>();
-            for (int i = 0; i < operandJsonNodes.size(); i++) {
-                operands.add(parseJsonNode(operandJsonNodes.get(i)));
-            }
-            return new ComputationNode(operatorStr, operands);
-        }
-        else if (jsonNode.isArray()) {
-            if (jsonNode.size() == 0) {
-                throw new ParseException("Empty array cannot be parsed as DataNode.", 0);
-            }
-            // Check if it's a vector (1D array)
-            if (jsonNode.get(0).isNumber()) {
-                throw new ParseException("Vectors (1D arrays) are not supported as standalone nodes.", 0);
+    /**
+     * Operator object whose fields are still being read.
+     * Its operands list is filled in place while the "operands" array is open.
+     */
+    private static final class OperatorFrame {
+        String operator = null;
+        List<ComputationNode> operands = null;
+        int exponent = -1;
+        boolean inOperands = false;
+    }
+
+    /**
+     * Parses the node the parser is positioned on.
+     * Operator objects nest through an explicit stack of frames instead of recursion,
+     * so arbitrarily deep expressions parse at a normal thread stack size.
+     */
+    private ComputationNode parseJsonNode(JsonParser jsonParser) throws IOException, ParseException {
+        Deque<OperatorFrame> stack = new ArrayDeque<>();
+        boolean expectingNode = true; // the current token starts a node value
+
+        while (true) {
+            ComputationNode completed = null;
+
+            if (expectingNode) {
+                JsonToken token = jsonParser.currentToken();
+                if (token == JsonToken.START_OBJECT) {
+                    stack.push(new OperatorFrame());
+                    expectingNode = false;
+                    continue;
+                }
+                else if (token == JsonToken.START_ARRAY)
+                    completed = parseMatrix(jsonParser);
+                else
+                    throw new ParseException("Invalid node structure: " + jsonParser.getText(), 0);
             }
-            // Otherwise, it's a matrix (2D array)
             else {
-                double[][] matrix = new double[jsonNode.size()][];
-                int width = jsonNode.get(0).size();
-                for (int i = 0; i < jsonNode.size(); i++) {
-                    JsonNode rowJsonNode = jsonNode.get(i);
-                    if (rowJsonNode.size() != width) {
-                        throw new ParseException("Inconsistent row sizes in matrix.", 0);
+                OperatorFrame frame = stack.peek();
+                JsonToken token = jsonParser.nextToken();
+
+                if (frame.inOperands) {
+                    if (token == JsonToken.END_ARRAY)
+                        frame.inOperands = false;
+                    else
+                        expectingNode = true;
+                    continue;
+                }
+
+                if (token == JsonToken.FIELD_NAME) {
+                    String field = jsonParser.currentName();
+                    JsonToken value = jsonParser.nextToken();
+                    if (field.equals("operator")) {
+                        frame.operator = value.isScalarValue() ? jsonParser.getValueAsString("") : "";
+                        jsonParser.skipChildren();
                     }
-                    if (!rowJsonNode.isArray()) {
-                        throw new ParseException("Invalid matrix row: " + rowJsonNode.toString(), 0);
+                    else if (field.equals("exponent")) {
+                        if (value != JsonToken.VALUE_NUMBER_INT || jsonParser.getLongValue() < 0
+                                || jsonParser.getLongValue() > Integer.MAX_VALUE)
+                            throw new ParseException("Exponent must be a non-negative integer: " + jsonParser.getText(), 0);
+                        frame.exponent = jsonParser.getIntValue();
                     }
-                    matrix[i] = new double[rowJsonNode.size()];
-                    for (int j = 0; j < rowJsonNode.size(); j++) {
-                        matrix[i][j] = rowJsonNode.get(j).asDouble();
+                    else if (field.equals("operands")) {
+                        if (value != JsonToken.START_ARRAY)
+                            throw new ParseException("Operands must be an array: " + jsonParser.getText(), 0);
+                        frame.operands = new ArrayList<>();
+                        frame.inOperands = true;
                     }
+                    else
+                        jsonParser.skipChildren();
+                    continue;
                 }
-                return new ComputationNode(matrix);
+
+                if (token != JsonToken.END_OBJECT)
+                    throw new ParseException("Invalid node structure: " + jsonParser.getText(), 0);
+
+                stack.pop();
+                if (frame.operator == null || frame.operands == null)
+                    throw new ParseException("Invalid node structure: object without \"operator\" and \"operands\"", 0);
+                completed = new ComputationNode(frame.operator, frame.operands);
+                if (completed.getNodeType() == ComputationNodeType.POWER && frame.exponent < 0)
+                    throw new ParseException("Invalid node structure: \"^\" operator without \"exponent\"", 0);
+                completed.setExponent(frame.exponent);
+            }
+
+            if (stack.isEmpty())
+                return completed;
+            stack.peek().operands.add(completed);
+            expectingNode = false;
+        }
+    }
+
+    private ComputationNode parseMatrix(JsonParser jsonParser) throws IOException, ParseException {
+        /// parse a 2D array; the parser is positioned on its START_ARRAY and is left on its END_ARRAY
+
+        JsonToken token = jsonParser.nextToken();
+        if (token == JsonToken.END_ARRAY) {
+            throw new ParseException("Empty array cannot be parsed as DataNode.", 0);
+        }
+        // Check if it's a vector (1D array)
+        if (token.isNumeric()) {
+            throw new ParseException("Vectors (1D arrays) are not supported as standalone nodes.", 0);
+        }
+        // Otherwise, it's a matrix (2D array)
+        List<double[]> rows = spillDirectory == null ? new ArrayList<>() : null;
+        TiledMatrix spilled = spillDirectory == null ? null : TiledMatrix.appendable(spillDirectory);
+        int width = -1;
+        while (token != JsonToken.END_ARRAY) {
+            if (token != JsonToken.START_ARRAY) {
+                throw new ParseException("Invalid matrix row: " + jsonParser.getText(), 0);
             }
+            double[] row = new double[width < 0 ? 16 : width];
+            int size = 0;
+            for (token = jsonParser.nextToken(); token != JsonToken.END_ARRAY; token = jsonParser.nextToken()) {
+                if (size == row.length)
+                    row = Arrays.copyOf(row, Math.max(16, row.length * 2));
+                row[size++] = parseValue(jsonParser, token);
+            }
+            if (width < 0) {
+                width = size;
+            }
+            if (size != width) {
+                throw new ParseException("Inconsistent row sizes in matrix.", 0);
+            }
+            row = row.length == size ? row : Arrays.copyOf(row, size);
+            if (spilled != null)
+                spilled.appendRow(row);
+            else
+                rows.add(row);
+            token = jsonParser.nextToken();
+        }
+        if (spilled != null)
+            return new ComputationNode(spilled);
+
+        double[][] matrix = rows.toArray(new double[0][]);
+        ComputationNode leaf = new ComputationNode(matrix);
+        leaf.setStructure(MatrixStructure.detect(matrix));
+        return leaf;
+    }
+
+    private double parseValue(JsonParser jsonParser, JsonToken token) throws IOException {
+        /// same coercion as JsonNode.asDouble(): numbers and numeric strings, true = 1, anything else 0
+
+        if (token.isNumeric())
+            return jsonParser.getDoubleValue();
+        if (token == JsonToken.START_ARRAY || token == JsonToken.START_OBJECT) {
+            jsonParser.skipChildren();
+            return 0.0;
         }
-        else { throw new ParseException("Invalid node structure: " + jsonNode.toString(), 0); }
+        return jsonParser.getValueAsDouble(0.0);
     }
 
-}
\ No newline at end of file
+}
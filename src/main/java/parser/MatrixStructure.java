@@ -0,0 +1,100 @@
+package parser;
+
+import java.util.Arrays;
+
+/**
+ * Special structure of an input matrix, detected once at parse time, with the compact form
+ * the structured kernels work from: the diagonal of a diagonal matrix, the value of a
+ * constant fill. ZERO and IDENTITY are the constant 0 and the all-ones diagonal.
+ */
+public final class MatrixStructure {
+
+    public enum Kind {
+        GENERAL,
+        ZERO,
+        IDENTITY,
+        DIAGONAL, // square, zero off the diagonal
+        CONSTANT, // every element the same
+    }
+
+    private static final MatrixStructure GENERAL = new MatrixStructure(Kind.GENERAL, 0, null);
+
+    private final Kind kind;
+    private final double constant;
+    private final double[] diagonal;
+
+    private MatrixStructure(Kind kind, double constant, double[] diagonal) {
+        this.kind = kind;
+        this.constant = constant;
+        this.diagonal = diagonal;
+    }
+
+    public static MatrixStructure detect(double[][] matrix) {
+        /// one pass over the matrix, stopping as soon as it can be neither constant nor diagonal
+
+        int rows = matrix.length, cols = rows == 0 ? 0 : matrix[0].length;
+        if (rows == 0 || cols == 0)
+            return GENERAL;
+
+        double first = matrix[0][0];
+        boolean constant = true;
+        boolean diagonal = rows == cols;
+        for (int i = 0; i < rows && (constant || diagonal); i++)
+            for (int j = 0; j < cols; j++) {
+                double v = matrix[i][j];
+                // compare bits, so -0.0 and NaN entries don't pass for something they aren't
+                constant &= Double.doubleToRawLongBits(v) == Double.doubleToRawLongBits(first);
+                diagonal &= i == j || Double.doubleToRawLongBits(v) == 0;
+            }
+
+        if (constant && Double.doubleToRawLongBits(first) == 0)
+            return new MatrixStructure(Kind.ZERO, 0, null);
+        if (diagonal) {
+            double[] d = new double[rows];
+            boolean ones = true, finite = true;
+            for (int i = 0; i < rows; i++) {
+                d[i] = matrix[i][i];
+                ones &= d[i] == 1;
+                finite &= Double.isFinite(d[i]);
+            }
+            if (finite)
+                return ones ? new MatrixStructure(Kind.IDENTITY, 0, d) : new MatrixStructure(Kind.DIAGONAL, 0, d);
+        }
+        if (constant && Double.isFinite(first))
+            return new MatrixStructure(Kind.CONSTANT, first, null);
+
+        return GENERAL;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public boolean isGeneral() {
+        return kind == Kind.GENERAL;
+    }
+
+    public double getConstant() {
+        /// fill value of a CONSTANT or ZERO matrix
+
+        return constant;
+    }
+
+    public double[] getDiagonal() {
+        /// diagonal of a DIAGONAL or IDENTITY matrix (not a copy; don't modify it)
+
+        return diagonal;
+    }
+
+    @Override
+    public String toString() {
+        switch (kind) {
+            case CONSTANT:
+                return "CONSTANT(" + constant + ")";
+            case DIAGONAL:
+                return "DIAGONAL" + (diagonal.length <= 8 ? Arrays.toString(diagonal) : "(" + diagonal.length + ")");
+            default:
+                return kind.toString();
+        }
+    }
+}
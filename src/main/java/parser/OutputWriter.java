@@ -2,8 +2,12 @@ package parser;
 
 import java.io.File;
 import java.io.IOException;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import memory.TiledMatrix;
 
 public class OutputWriter {
 
@@ -22,13 +26,57 @@ public class OutputWriter {
     public OutputWriter() {}
 
     public static void write(double[][] matrix, String filePath) throws IOException {
+        WriteEvent event = new WriteEvent();
+        event.path = filePath;
+        event.rows = matrix == null ? 0 : matrix.length;
+        event.cols = matrix == null || matrix.length == 0 ? 0 : matrix[0].length;
+        event.begin();
+
         File file = new File(filePath);
-        mapper.writerWithDefaultPrettyPrinter().writeValue(file, new ResultMatrix(matrix));
+        try {
+            mapper.writerWithDefaultPrettyPrinter().writeValue(file, new ResultMatrix(matrix));
+        } finally {
+            event.commit();
+        }
+    }
+
+    public static void write(TiledMatrix matrix, String filePath) throws IOException {
+        /// same JSON as write(double[][]), streamed row by row from disk
+
+        WriteEvent event = new WriteEvent();
+        event.path = filePath;
+        event.rows = matrix.getRows();
+        event.cols = matrix.getCols();
+        event.begin();
+
+        try (JsonGenerator gen = mapper.getFactory().createGenerator(new File(filePath), JsonEncoding.UTF8)) {
+            gen.setPrettyPrinter(new DefaultPrettyPrinter());
+            gen.writeStartObject();
+            gen.writeFieldName("result");
+            gen.writeStartArray();
+            for (int i = 0; i < matrix.getRows(); i++) {
+                double[] row = matrix.readRow(i);
+                gen.writeArray(row, 0, row.length);
+            }
+            gen.writeEndArray();
+            gen.writeEndObject();
+        } finally {
+            event.commit();
+        }
     }
 
     public static void write(String error, String filePath) throws IOException {
+        WriteEvent event = new WriteEvent();
+        event.path = filePath;
+        event.error = true;
+        event.begin();
+
         File file = new File(filePath);
-        mapper.writerWithDefaultPrettyPrinter().writeValue(file, new ErrorMessage(error));
+        try {
+            mapper.writerWithDefaultPrettyPrinter().writeValue(file, new ErrorMessage(error));
+        } finally {
+            event.commit();
+        }
     }
 
 }
@@ -0,0 +1,28 @@
+package parser;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event spanning {@link InputParser#parse}.
+ */
+@Name("lae.Parse")
+@Label("Parse Input")
+@Category({"Linear Algebra Engine", "I/O"})
+@Description("Reading and parsing the input computation tree")
+final class ParseEvent extends Event {
+
+    @Label("Path")
+    String path;
+
+    @Label("Size")
+    @DataAmount
+    long bytes;
+
+    @Label("Succeeded")
+    boolean succeeded;
+}
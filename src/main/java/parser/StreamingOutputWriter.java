@@ -0,0 +1,154 @@
+package parser;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Writes the result matrix while it is still being computed.
+ * Worker tasks hand over finished rows in any order with {@link #row}; a writer thread
+ * serializes them to the file strictly in row order (same JSON as {@link OutputWriter})
+ * and drops each row reference once written, so I/O overlaps the tail of the computation.
+ */
+public class StreamingOutputWriter {
+
+    private static final JsonFactory factory = new JsonFactory();
+
+    private final String filePath;
+    private double[][] pending = null;  // rows handed over and not yet written
+    private boolean[] handedOver = null;
+    private int next = 0;               // next row the writer thread will write
+    private boolean aborted = false;
+    private IOException failure = null;
+    private Thread writer = null;
+    private WriteEvent event = null;
+
+    public StreamingOutputWriter(String filePath) {
+        this.filePath = filePath;
+    }
+
+    public synchronized boolean isStarted() {
+        return writer != null;
+    }
+
+    public synchronized void begin(int rows, int cols) {
+        /// open the file and start the writer thread for a rows × cols result
+
+        if (writer != null)
+            throw new IllegalStateException("Streaming output already started.");
+
+        pending = new double[rows][];
+        handedOver = new boolean[rows];
+        event = new WriteEvent();
+        event.path = filePath;
+        event.rows = rows;
+        event.cols = cols;
+        event.begin();
+
+        writer = new Thread(this::writeRows, "result-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public synchronized void row(int index, double[] row) {
+        /// hand over a finished row; it must not be modified afterwards
+
+        if (row == null)
+            throw new NullPointerException("Row is null.");
+        if (writer == null)
+            throw new IllegalStateException("Streaming output not started.");
+
+        pending[index] = row;
+        handedOver[index] = true;
+        if (index == next)
+            notifyAll();
+    }
+
+    public void finish(double[][] result) throws IOException {
+        /// hand over every row not streamed yet (all of them if streaming never started),
+        /// then wait until the file is complete
+
+        Thread thread;
+        synchronized (this) {
+            if (writer == null)
+                begin(result.length, result.length == 0 ? 0 : result[0].length);
+            for (int i = 0; i < handedOver.length; i++)
+                if (!handedOver[i])
+                    row(i, result[i]);
+            thread = writer;
+        }
+
+        join(thread);
+        synchronized (this) {
+            event.commit();
+            if (failure != null)
+                throw failure;
+        }
+    }
+
+    public void abort() {
+        /// stop the writer thread, leaving whatever it wrote; the caller overwrites the file
+
+        Thread thread;
+        synchronized (this) {
+            aborted = true;
+            notifyAll();
+            thread = writer;
+        }
+
+        if (thread != null)
+            join(thread);
+    }
+
+    private void writeRows() {
+        try (JsonGenerator gen = factory.createGenerator(new File(filePath), JsonEncoding.UTF8)) {
+            gen.setPrettyPrinter(new DefaultPrettyPrinter());
+            gen.writeStartObject();
+            gen.writeFieldName("result");
+            gen.writeStartArray();
+
+            for (int rows = pending.length; next < rows; ) {
+                double[] row;
+                synchronized (this) {
+                    while (pending[next] == null && !aborted)
+                        wait();
+                    if (aborted)
+                        return;
+                    row = pending[next];
+                    pending[next] = null;
+                }
+
+                gen.writeArray(row, 0, row.length);
+                synchronized (this) {
+                    next++;
+                }
+            }
+
+            gen.writeEndArray();
+            gen.writeEndObject();
+        } catch (IOException e) {
+            synchronized (this) {
+                failure = e;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void join(Thread thread) {
+        boolean interrupted = false;
+        while (thread.isAlive())
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+}
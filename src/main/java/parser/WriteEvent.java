@@ -0,0 +1,30 @@
+package parser;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event spanning an {@link OutputWriter} write of a result or an error.
+ */
+@Name("lae.Write")
+@Label("Write Output")
+@Category({"Linear Algebra Engine", "I/O"})
+@Description("Writing the result matrix or error message")
+final class WriteEvent extends Event {
+
+    @Label("Path")
+    String path;
+
+    @Label("Rows")
+    int rows;
+
+    @Label("Columns")
+    int cols;
+
+    @Label("Error")
+    @Description("An error message was written instead of a matrix")
+    boolean error;
+}
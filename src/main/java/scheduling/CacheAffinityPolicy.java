@@ -0,0 +1,38 @@
+package scheduling;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Reuses the most recently idle worker first (LIFO), so back-to-back tasks land on a core
+ * whose caches still hold the operands the previous task touched, and surplus workers stay parked.
+ */
+public class CacheAffinityPolicy implements SchedulingPolicy {
+
+    private final Deque<TiredThread> idle = new ArrayDeque<>();
+
+    @Override
+    public String getName() {
+        return "cache-affinity";
+    }
+
+    @Override
+    public void workerIdle(TiredThread worker) {
+        idle.push(worker);
+    }
+
+    @Override
+    public TiredThread selectWorker() {
+        return idle.poll();
+    }
+
+    @Override
+    public boolean removeIdle(TiredThread worker) {
+        return idle.remove(worker);
+    }
+
+    @Override
+    public boolean hasIdleWorker() {
+        return !idle.isEmpty();
+    }
+}
@@ -0,0 +1,199 @@
+package scheduling;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and histograms kept by a {@link TiredExecutor}:
+ * task durations, handoff latency (task handed to a worker until it starts running),
+ * submit waits (submitter blocked because no worker was idle), bytes allocated by tasks,
+ * and per-worker utilization since the executor started.
+ */
+public class ExecutorMetrics {
+
+    private static final com.sun.management.ThreadMXBean THREADS = allocationBean();
+
+    private final List<TiredThread> workers; // live view, grows as the pool does
+    private final long startNanos = System.nanoTime();
+
+    private final LongAdder tasksSubmitted = new LongAdder();
+    private final LongAdder tasksCompleted = new LongAdder();
+    private final LongAdder tasksFailed = new LongAdder();
+    private final LongAdder bytesAllocated = new LongAdder();
+    private final LongAdder speculativeLaunches = new LongAdder();
+    private final LongAdder speculativeWins = new LongAdder();
+    private final LongAdder affinityHits = new LongAdder();
+    private final LongAdder affinitySteals = new LongAdder();
+
+    private final LatencyHistogram taskDuration = new LatencyHistogram();
+    private final LatencyHistogram handoffWait = new LatencyHistogram();
+    private final LatencyHistogram submitWait = new LatencyHistogram();
+
+    ExecutorMetrics(List<TiredThread> workers) {
+        this.workers = workers;
+    }
+
+    void recordSubmit(long waitNanos) {
+        tasksSubmitted.increment();
+        submitWait.record(waitNanos);
+    }
+
+    void recordHandoff(long nanos) {
+        handoffWait.record(nanos);
+    }
+
+    void recordTask(long nanos, long allocatedBytes, boolean failed) {
+        taskDuration.record(nanos);
+        if (allocatedBytes > 0)
+            bytesAllocated.add(allocatedBytes);
+        if (failed)
+            tasksFailed.increment();
+        else
+            tasksCompleted.increment();
+    }
+
+    void recordSpeculativeLaunch() {
+        speculativeLaunches.increment();
+    }
+
+    void recordSpeculativeWin() {
+        speculativeWins.increment();
+    }
+
+    void recordAffinity(boolean hit) {
+        if (hit)
+            affinityHits.increment();
+        else
+            affinitySteals.increment();
+    }
+
+    public long getAffinityHits() {
+        /// keyed tasks that ran on the worker that ran their key last time
+
+        return affinityHits.sum();
+    }
+
+    public long getAffinitySteals() {
+        /// keyed tasks that moved to another worker because their last one was busy
+
+        return affinitySteals.sum();
+    }
+
+    public long getSpeculativeLaunches() {
+        /// duplicates started for straggling tasks
+
+        return speculativeLaunches.sum();
+    }
+
+    public long getSpeculativeWins() {
+        /// duplicates that finished before the original and had their result committed
+
+        return speculativeWins.sum();
+    }
+
+    public long getTasksSubmitted() {
+        return tasksSubmitted.sum();
+    }
+
+    public long getTasksCompleted() {
+        return tasksCompleted.sum();
+    }
+
+    public long getTasksFailed() {
+        return tasksFailed.sum();
+    }
+
+    public long getBytesAllocated() {
+        /// bytes allocated by task bodies on worker threads (0 if the JVM can't measure it)
+
+        return bytesAllocated.sum();
+    }
+
+    public LatencyHistogram getTaskDuration() {
+        return taskDuration;
+    }
+
+    public LatencyHistogram getHandoffWait() {
+        return handoffWait;
+    }
+
+    public LatencyHistogram getSubmitWait() {
+        return submitWait;
+    }
+
+    public long getElapsedNanos() {
+        /// wall time since the executor started
+
+        return System.nanoTime() - startNanos;
+    }
+
+    public double[] getWorkerUtilization() {
+        /// fraction of wall time since startup each worker spent running tasks
+
+        long elapsed = Math.max(1, getElapsedNanos());
+        List<TiredThread> snapshot = List.copyOf(workers);
+        double[] utilization = new double[snapshot.size()];
+        for (int i = 0; i < utilization.length; i++)
+            utilization[i] = Math.min(1.0, (double) snapshot.get(i).getTimeUsed() / elapsed);
+        return utilization;
+    }
+
+    public Map<String, Object> toMap() {
+        /// snapshot suitable for JSON export
+
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("tasksSubmitted", getTasksSubmitted());
+        map.put("tasksCompleted", getTasksCompleted());
+        map.put("tasksFailed", getTasksFailed());
+        map.put("bytesAllocated", getBytesAllocated());
+        map.put("speculativeLaunches", getSpeculativeLaunches());
+        map.put("speculativeWins", getSpeculativeWins());
+        map.put("affinityHits", getAffinityHits());
+        map.put("affinitySteals", getAffinitySteals());
+        map.put("taskDuration", taskDuration.toMap());
+        map.put("handoffWait", handoffWait.toMap());
+        map.put("submitWait", submitWait.toMap());
+
+        List<Map<String, Object>> perWorker = new ArrayList<>();
+        List<TiredThread> snapshot = List.copyOf(workers);
+        long elapsed = Math.max(1, getElapsedNanos());
+        for (TiredThread worker : snapshot) {
+            Map<String, Object> w = new LinkedHashMap<>();
+            w.put("id", worker.getWorkerId());
+            w.put("timeUsedNanos", worker.getTimeUsed());
+            w.put("timeIdleNanos", worker.getTimeIdle());
+            w.put("tasksRun", worker.getTasksRun());
+            w.put("fatigue", worker.getFatigue());
+            w.put("utilization", Math.min(1.0, (double) worker.getTimeUsed() / elapsed));
+            w.put("retired", worker.isRetired());
+            perWorker.add(w);
+        }
+        map.put("workers", perWorker);
+
+        return map;
+    }
+
+    public static long currentThreadAllocatedBytes() {
+        /// running total of bytes allocated by the calling thread, or 0 if unsupported
+
+        return THREADS == null ? 0 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        try {
+            if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+                if (bean.isThreadAllocatedMemorySupported()) {
+                    bean.setThreadAllocatedMemoryEnabled(true);
+                    return bean;
+                }
+            }
+        } catch (UnsupportedOperationException | SecurityException ignored) {}
+
+        return null;
+    }
+}
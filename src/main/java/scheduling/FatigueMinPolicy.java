@@ -0,0 +1,38 @@
+package scheduling;
+
+import java.util.PriorityQueue;
+
+/**
+ * The original policy: the idle worker with the least fatigue (fatigue factor × time used)
+ * gets the next task, so slow-tiring workers end up doing more of the work.
+ */
+public class FatigueMinPolicy implements SchedulingPolicy {
+
+    // fatigue only changes while a worker is running, so heap order stays valid
+    private final PriorityQueue<TiredThread> idle = new PriorityQueue<>();
+
+    @Override
+    public String getName() {
+        return "fatigue-min";
+    }
+
+    @Override
+    public void workerIdle(TiredThread worker) {
+        idle.add(worker);
+    }
+
+    @Override
+    public TiredThread selectWorker() {
+        return idle.poll();
+    }
+
+    @Override
+    public boolean removeIdle(TiredThread worker) {
+        return idle.remove(worker);
+    }
+
+    @Override
+    public boolean hasIdleWorker() {
+        return !idle.isEmpty();
+    }
+}
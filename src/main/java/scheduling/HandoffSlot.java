@@ -0,0 +1,95 @@
+package scheduling;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Single-producer single-consumer slot holding at most one task, without locks.
+ * The consumer waits in three stages: it spins for a while, then yields its time slice,
+ * then parks; the producer unparks it only if it actually got that far. For microsecond
+ * tasks this avoids the lock/condition round trip of an ArrayBlockingQueue(1).
+ */
+public class HandoffSlot {
+
+    static final int SPINS = 1 << 10;  // busy-wait iterations before yielding
+    static final int YIELDS = 1 << 6;  // yields before parking
+
+    private static final VarHandle SLOT;
+    private static final VarHandle WAITER;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            SLOT = lookup.findVarHandle(HandoffSlot.class, "slot", Runnable.class);
+            WAITER = lookup.findVarHandle(HandoffSlot.class, "waiter", Thread.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @SuppressWarnings("unused") private Runnable slot = null;  // accessed through SLOT only
+    @SuppressWarnings("unused") private Thread waiter = null;  // parked consumer, through WAITER only
+
+    public boolean offer(Runnable task) {
+        /// publish a task if the slot is empty; never blocks
+
+        if (task == null)
+            throw new NullPointerException("Task is null.");
+        if (!SLOT.compareAndSet(this, null, task))
+            return false;
+
+        Thread parked = (Thread) WAITER.getVolatile(this);
+        if (parked != null)
+            LockSupport.unpark(parked);
+        return true;
+    }
+
+    public void put(Runnable task) {
+        /// publish a task, waiting (spin, then yield) for the consumer to empty the slot
+
+        int spins = 0;
+        while (!offer(task))
+            if (spins++ < SPINS)
+                Thread.onSpinWait();
+            else
+                Thread.yield();
+    }
+
+    public Runnable take() {
+        /// wait as long as it takes for a task
+
+        return poll(-1);
+    }
+
+    public Runnable poll(long timeoutNanos) {
+        /// wait up to timeoutNanos (forever if negative) for a task; null on timeout
+
+        long deadline = timeoutNanos < 0 ? 0 : System.nanoTime() + timeoutNanos;
+        for (int round = 0; ; round++) {
+            Runnable task = (Runnable) SLOT.getAndSet(this, null);
+            if (task != null)
+                return task;
+
+            long remaining = timeoutNanos < 0 ? Long.MAX_VALUE : deadline - System.nanoTime();
+            if (remaining <= 0)
+                return null;
+
+            if (round < SPINS)
+                Thread.onSpinWait();
+            else if (round < SPINS + YIELDS)
+                Thread.yield();
+            else {
+                // announce ourselves, then re-check so an offer racing with us is never missed
+                WAITER.setVolatile(this, Thread.currentThread());
+                if (SLOT.getVolatile(this) == null) {
+                    if (timeoutNanos < 0)
+                        LockSupport.park(this);
+                    else
+                        LockSupport.parkNanos(this, remaining);
+                }
+                WAITER.setRelease(this, null);
+            }
+        }
+    }
+}
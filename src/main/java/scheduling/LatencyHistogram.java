@@ -0,0 +1,110 @@
+package scheduling;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free log-linear histogram of nanosecond durations.
+ * Values below 16 get their own bucket; above that every power of two is split into 8
+ * sub-buckets, so any reported percentile is within 12.5% of the true value.
+ */
+public class LatencyHistogram {
+
+    private static final int LINEAR = 16;
+    private static final int SUB_BITS = 3;
+    private static final int SUBS = 1 << SUB_BITS;
+    private static final int BUCKETS = LINEAR + (64 - 4) * SUBS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong(0);
+
+    public void record(long nanos) {
+        /// add one observation (negative values are clamped to 0)
+
+        long v = Math.max(0, nanos);
+        counts.incrementAndGet(bucketOf(v));
+        count.incrementAndGet();
+        sum.addAndGet(v);
+        min.accumulateAndGet(v, Math::min);
+        max.accumulateAndGet(v, Math::max);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getSum() {
+        return sum.get();
+    }
+
+    public long getMin() {
+        return count.get() == 0 ? 0 : min.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long n = count.get();
+        return n == 0 ? 0 : (double) sum.get() / n;
+    }
+
+    public long getPercentile(double percentile) {
+        /// upper bound of the bucket holding the given percentile (0..100)
+
+        long n = count.get();
+        if (n == 0)
+            return 0;
+
+        long rank = (long) Math.ceil(percentile / 100.0 * n);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= Math.max(1, rank))
+                return Math.min(upperBound(i), max.get());
+        }
+
+        return max.get();
+    }
+
+    public Map<String, Object> toMap() {
+        /// summary suitable for JSON export
+
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("count", getCount());
+        map.put("sumNanos", getSum());
+        map.put("minNanos", getMin());
+        map.put("meanNanos", getMean());
+        map.put("p50Nanos", getPercentile(50));
+        map.put("p90Nanos", getPercentile(90));
+        map.put("p99Nanos", getPercentile(99));
+        map.put("p999Nanos", getPercentile(99.9));
+        map.put("maxNanos", getMax());
+        return map;
+    }
+
+    private static int bucketOf(long v) {
+        if (v < LINEAR)
+            return (int) v;
+
+        int exponent = 63 - Long.numberOfLeadingZeros(v); // >= 4
+        int sub = (int) (v >>> (exponent - SUB_BITS)) & (SUBS - 1);
+        return LINEAR + (exponent - 4) * SUBS + sub;
+    }
+
+    private static long upperBound(int bucket) {
+        if (bucket < LINEAR)
+            return bucket;
+
+        int exponent = (bucket - LINEAR) / SUBS + 4;
+        int sub = (bucket - LINEAR) % SUBS;
+        long upper = ((long) (SUBS + sub + 1) << (exponent - SUB_BITS)) - 1;
+        return upper < 0 ? Long.MAX_VALUE : upper;
+    }
+}
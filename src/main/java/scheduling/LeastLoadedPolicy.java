@@ -0,0 +1,41 @@
+package scheduling;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * Sends the next task to the idle worker that has been handed the least work so far
+ * (raw time used, not weighted by the fatigue factor), then the fewest tasks.
+ * Workers accept one task at a time, so work already handed out is the only load they carry.
+ */
+public class LeastLoadedPolicy implements SchedulingPolicy {
+
+    // both keys are updated before the executor hands a worker back, never while it waits here
+    private final PriorityQueue<TiredThread> idle = new PriorityQueue<>(
+            Comparator.comparingLong(TiredThread::getTimeUsed).thenComparingLong(TiredThread::getTasksRun));
+
+    @Override
+    public String getName() {
+        return "least-loaded";
+    }
+
+    @Override
+    public void workerIdle(TiredThread worker) {
+        idle.add(worker);
+    }
+
+    @Override
+    public TiredThread selectWorker() {
+        return idle.poll();
+    }
+
+    @Override
+    public boolean removeIdle(TiredThread worker) {
+        return idle.remove(worker);
+    }
+
+    @Override
+    public boolean hasIdleWorker() {
+        return !idle.isEmpty();
+    }
+}
@@ -0,0 +1,48 @@
+package scheduling;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Hands tasks to workers in id order, skipping busy ones, regardless of their fatigue.
+ */
+public class RoundRobinPolicy implements SchedulingPolicy {
+
+    private final TreeMap<Integer, TiredThread> idle = new TreeMap<>();
+    private int next = 0; // id the next task would ideally go to
+
+    @Override
+    public String getName() {
+        return "round-robin";
+    }
+
+    @Override
+    public void workerIdle(TiredThread worker) {
+        idle.put(worker.getWorkerId(), worker);
+    }
+
+    @Override
+    public TiredThread selectWorker() {
+        /// first idle worker at or after the cursor, wrapping around
+
+        Map.Entry<Integer, TiredThread> entry = idle.ceilingEntry(next);
+        if (entry == null)
+            entry = idle.firstEntry();
+        if (entry == null)
+            return null;
+
+        idle.remove(entry.getKey());
+        next = entry.getKey() + 1;
+        return entry.getValue();
+    }
+
+    @Override
+    public boolean removeIdle(TiredThread worker) {
+        return idle.remove(worker.getWorkerId(), worker);
+    }
+
+    @Override
+    public boolean hasIdleWorker() {
+        return !idle.isEmpty();
+    }
+}
@@ -0,0 +1,50 @@
+package scheduling;
+
+/**
+ * Decides which idle worker a {@link TiredExecutor} hands the next task to.
+ * The executor reports every worker that becomes idle and asks for one back on each submit;
+ * both calls are made while holding the executor's monitor, so implementations need no
+ * synchronization of their own. A policy instance belongs to a single executor.
+ */
+public interface SchedulingPolicy {
+
+    /**
+     * Short name shown in reports, e.g. "fatigue-min".
+     */
+    String getName();
+
+    /**
+     * Worker finished its task (or just started) and can accept a new one.
+     */
+    void workerIdle(TiredThread worker);
+
+    /**
+     * Remove and return the idle worker that should run the next task, or null if none is idle.
+     */
+    TiredThread selectWorker();
+
+    /**
+     * Take a specific worker out of the idle set (an elastic pool retiring it);
+     * false if it isn't idle.
+     */
+    boolean removeIdle(TiredThread worker);
+
+    boolean hasIdleWorker();
+
+    static SchedulingPolicy forName(String name) {
+        /// fresh policy for one of the names accepted on the command line
+
+        switch (name.toLowerCase()) {
+            case "fatigue-min":
+                return new FatigueMinPolicy();
+            case "round-robin":
+                return new RoundRobinPolicy();
+            case "least-loaded":
+                return new LeastLoadedPolicy();
+            case "cache-affinity":
+                return new CacheAffinityPolicy();
+            default:
+                throw new IllegalArgumentException("Unknown scheduling policy: " + name);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package scheduling;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * An idempotent task split into a side-effect-free compute step, which builds its result in
+ * a private scratch buffer, and a commit step that publishes it.
+ * Several attempts may compute concurrently (see {@link TiredExecutor#setSpeculation});
+ * only the first one to finish commits, the others' results are dropped.
+ */
+public class SpeculativeTask<T> extends TiredTask {
+
+    private final Supplier<T> compute;
+    private final Consumer<T> commit;
+    private final AtomicBoolean committed = new AtomicBoolean(false);
+
+    public SpeculativeTask(Supplier<T> compute, Consumer<T> commit, long cost) {
+        this(compute, commit, cost, -1);
+    }
+
+    public SpeculativeTask(Supplier<T> compute, Consumer<T> commit, long cost, int affinity) {
+        super(cost, affinity);
+        if (compute == null || commit == null)
+            throw new NullPointerException("Task is null.");
+
+        this.compute = compute;
+        this.commit = commit;
+    }
+
+    public boolean isCommitted() {
+        return committed.get();
+    }
+
+    @Override
+    public void run() {
+        runAttempt();
+    }
+
+    boolean runAttempt() {
+        /// compute and, if no other attempt got there first, commit; true if this attempt committed
+
+        if (committed.get())
+            return false;
+
+        T result = compute.get();
+        if (!committed.compareAndSet(false, true))
+            return false;
+
+        commit.accept(result);
+        return true;
+    }
+}
@@ -0,0 +1,24 @@
+package scheduling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event spanning a {@link TiredExecutor#submit} call that blocked
+ * because no worker was idle.
+ */
+@Name("lae.SubmitWait")
+@Label("Submit Wait")
+@Category({"Linear Algebra Engine", "Scheduling"})
+@Description("Submitter blocked until a worker became idle")
+final class SubmitWaitEvent extends Event {
+
+    @Label("Tasks In Flight")
+    int inFlight;
+
+    @Label("Workers")
+    int workers;
+}
@@ -0,0 +1,32 @@
+package scheduling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event spanning one task run by a {@link TiredThread}.
+ */
+@Name("lae.Task")
+@Label("Task")
+@Category({"Linear Algebra Engine", "Scheduling"})
+@Description("A task executed by a worker")
+@StackTrace(false)
+final class TaskEvent extends Event {
+
+    @Label("Worker Id")
+    int workerId;
+
+    @Label("Fatigue Factor")
+    double fatigueFactor;
+
+    @Label("Fatigue Before")
+    @Description("Worker fatigue when the task started")
+    double fatigue;
+
+    @Label("Failed")
+    boolean failed;
+}
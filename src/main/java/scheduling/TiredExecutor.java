@@ -1,73 +1,494 @@
 package scheduling;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Random;
-import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 public class TiredExecutor {
 
-    private final TiredThread[] workers;
-    private final PriorityBlockingQueue<TiredThread> idleMinHeap = new PriorityBlockingQueue<>();
+    private final List<TiredThread> workers = new CopyOnWriteArrayList<>(); // every worker started, retired ones included
+    private final SchedulingPolicy policy; // guarded by this
+    private final Random rand; // fatigue factors of new workers, guarded by this
+    private final int minThreads;
+    private final int maxThreads;
+    private final long idleTimeoutNanos; // 0: workers are never retired
+    private final AtomicInteger liveWorkers = new AtomicInteger(0); // changed under the monitor, except by tryRetireSpinning
+    private final boolean spinHandoff;
+    // spin-handoff mode only: workers that finished a task but aren't back in the policy yet,
+    // workers that retired but are still listed as idle, and the submitter parked waiting
+    private final ConcurrentLinkedQueue<TiredThread> finished = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<TiredThread> retiring = new ConcurrentLinkedQueue<>();
+    private volatile Thread waitingSubmitter = null;
     private final AtomicInteger inFlight = new AtomicInteger(0);
+    private final ExecutorMetrics metrics;
+    private double speculationFactor = 0; // guarded by this; 0 disables speculative execution
+    private boolean affinity = false; // guarded by this
+    private final Map<Integer, TiredThread> lastWorker = new HashMap<>(); // affinity key -> worker that ran it last
+
+    /**
+     * A task of the batch currently in submitAll, tracked for straggler detection.
+     * startNanos is set once, by the first attempt; durationNanos once, by whichever attempt finishes first.
+     */
+    private static final class BatchTask {
+        final Runnable task;
+        volatile long startNanos = 0;
+        final AtomicLong durationNanos = new AtomicLong(-1); // first finished attempt, -1 while running
+        boolean duplicated = false;
+
+        BatchTask(Runnable task) {
+            this.task = task;
+        }
+    }
 
     public TiredExecutor(int numThreads) {
         ///
-        Random rand = new Random();
-        double fatigueFactor;
-        workers = new TiredThread[numThreads];
-        for (int i = 0; i < workers.length; i++) {
-            fatigueFactor = 0.5 + rand.nextDouble();
-            workers[i] = new TiredThread(i, fatigueFactor);
-            idleMinHeap.add(workers[i]);
-            workers[i].start();
+        this(numThreads, new FatigueMinPolicy());
+    }
+
+    public TiredExecutor(int numThreads, SchedulingPolicy policy) {
+        /// random fatigue factors, workers picked by the given policy
+
+        this(numThreads, policy, new Random());
+    }
+
+    public TiredExecutor(int numThreads, SchedulingPolicy policy, long seed) {
+        /// reproducible fatigue factors, so policies can be compared on the same workers
+
+        this(numThreads, policy, new Random(seed));
+    }
+
+    public TiredExecutor(int minThreads, int maxThreads, long idleTimeoutMillis, SchedulingPolicy policy) {
+        /// elastic pool: starts minThreads workers, adds one whenever a submit would otherwise
+        /// block (up to maxThreads) and retires workers idle for idleTimeoutMillis (down to minThreads)
+
+        this(minThreads, maxThreads, idleTimeoutMillis, policy, false);
+    }
+
+    public TiredExecutor(int minThreads, int maxThreads, long idleTimeoutMillis, SchedulingPolicy policy, boolean spinHandoff) {
+        /// as above; spinHandoff swaps the blocking handoff queue and the executor-wide notifyAll
+        /// for lock-free slots and a targeted unpark, trading idle CPU for wakeup latency
+
+        this(minThreads, maxThreads, TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis), policy, spinHandoff, new Random());
+    }
+
+    private TiredExecutor(int numThreads, SchedulingPolicy policy, Random rand) {
+        this(numThreads, numThreads, 0, policy, false, rand);
+    }
+
+    private TiredExecutor(int minThreads, int maxThreads, long idleTimeoutNanos, SchedulingPolicy policy,
+                          boolean spinHandoff, Random rand) {
+        if (policy == null)
+            throw new NullPointerException("Scheduling policy is null.");
+        if (minThreads < 0 || maxThreads < Math.max(1, minThreads))
+            throw new IllegalArgumentException("Invalid pool size: min " + minThreads + ", max " + maxThreads);
+        if (idleTimeoutNanos < 0)
+            throw new IllegalArgumentException("Idle timeout must be non-negative.");
+
+        this.policy = policy;
+        this.rand = rand;
+        this.minThreads = minThreads;
+        this.maxThreads = maxThreads;
+        this.idleTimeoutNanos = minThreads == maxThreads ? 0 : idleTimeoutNanos;
+        this.spinHandoff = spinHandoff;
+        metrics = new ExecutorMetrics(workers);
+
+        synchronized (this) {
+            for (int i = 0; i < minThreads; i++)
+                startWorker();
         }
     }
 
+    private TiredThread startWorker() {
+        /// start one more worker and make it available to the policy (holding the monitor)
+
+        TiredThread worker = new TiredThread(workers.size(), 0.5 + rand.nextDouble(), spinHandoff);
+        if (idleTimeoutNanos > 0)
+            worker.setRetirement(idleTimeoutNanos, spinHandoff ? this::tryRetireSpinning : this::tryRetire);
+        workers.add(worker);
+        liveWorkers.incrementAndGet();
+        policy.workerIdle(worker);
+        worker.start();
+        return worker;
+    }
+
+    private synchronized boolean tryRetire(TiredThread worker) {
+        /// called by a worker idle past the timeout; it may exit if the pool stays at or above
+        /// minThreads and nobody has just picked it for a task
+
+        drainFinished();
+        if (liveWorkers.get() <= minThreads || !policy.removeIdle(worker))
+            return false;
+
+        liveWorkers.decrementAndGet();
+        return true;
+    }
+
+    private boolean tryRetireSpinning(TiredThread worker) {
+        /// tryRetire for spin-handoff mode, where a submitter keeps the monitor while it parks:
+        /// the worker claims itself instead, so no submitter can hand it a task, and leaves the
+        /// policy at the submitter's next drain
+
+        if (!worker.beginRetiring())
+            return false;
+
+        int live;
+        do {
+            live = liveWorkers.get();
+            if (live <= minThreads) {
+                worker.endRetiring(false);
+                return false;
+            }
+        } while (!liveWorkers.compareAndSet(live, live - 1));
+
+        worker.endRetiring(true);
+        retiring.add(worker);
+        return true;
+    }
+
+    public int getPoolSize() {
+        /// workers currently alive (not retired)
+
+        return liveWorkers.get();
+    }
+
+    public List<TiredThread> getWorkers() {
+        /// every worker started so far, retired ones included
+
+        return Collections.unmodifiableList(workers);
+    }
+
+    public SchedulingPolicy getPolicy() {
+        return policy;
+    }
+
+    public ExecutorMetrics getMetrics() {
+        return metrics;
+    }
+
+    public synchronized void setSpeculation(double slowdownFactor) {
+        /// re-run a SpeculativeTask on an idle worker once it has been running slowdownFactor
+        /// times the median duration of its finished batch-mates; 0 turns speculation off
+
+        if (slowdownFactor != 0 && !(slowdownFactor > 1))
+            throw new IllegalArgumentException("Speculation factor must be 0 or greater than 1: " + slowdownFactor);
+
+        speculationFactor = slowdownFactor;
+    }
+
+    public synchronized double getSpeculation() {
+        return speculationFactor;
+    }
+
+    public synchronized void setAffinity(boolean affinity) {
+        /// when on, submitAll gives each idle worker a task keyed to rows it ran last time
+        /// (see TiredTask affinity keys) and only steals other workers' rows when it has none
+
+        this.affinity = affinity;
+    }
+
+    public synchronized boolean isAffinity() {
+        return affinity;
+    }
+
     public synchronized void submit(Runnable task) {
         ///
 
         if (task == null)
             throw new NullPointerException("Task is null.");
 
-        while (idleMinHeap.isEmpty())
-            try {
-                wait();
-            } catch (InterruptedException ignored) {}
+        handOff(awaitIdleWorker(), task, null, false);
+    }
 
-        TiredThread worker = idleMinHeap.poll();
+    private TiredThread awaitIdleWorker() {
+        /// block until the policy has an idle worker and take it
 
-        if (worker != null) {
-            Runnable wrapped = () -> {
-                long start = System.nanoTime();
-                try {
+        long waitStart = System.nanoTime();
+        TiredThread worker = takeIdleWorker();
+        if (worker == null && liveWorkers.get() < maxThreads) {
+            startWorker();
+            worker = takeIdleWorker();
+        }
+
+        SubmitWaitEvent waitEvent = null;
+        if (worker == null) {
+            waitEvent = new SubmitWaitEvent();
+            waitEvent.inFlight = inFlight.get();
+            waitEvent.workers = liveWorkers.get();
+            waitEvent.begin();
+        }
+
+        while (worker == null) {
+            awaitSignal(0);
+            worker = takeIdleWorker();
+        }
+
+        if (waitEvent != null)
+            waitEvent.commit();
+
+        metrics.recordSubmit(System.nanoTime() - waitStart);
+        return worker;
+    }
+
+    private TiredThread takeIdleWorker() {
+        /// take the worker the policy picks among the idle ones, or null if none is idle;
+        /// in spin-handoff mode skips workers that retired since the last drain
+
+        drainFinished();
+        while (policy.hasIdleWorker()) {
+            TiredThread worker = policy.selectWorker();
+            if (!spinHandoff || worker.claim())
+                return worker;
+        }
+        return null;
+    }
+
+    private void handOff(TiredThread worker, Runnable task, BatchTask entry, boolean duplicate) {
+        /// run a task (or a speculative duplicate of a batch task) on a worker taken from the policy
+
+        long handedOff = System.nanoTime();
+        int key = TiredTask.affinityOf(task);
+        if (affinity && key >= 0 && !duplicate) {
+            TiredThread owner = lastWorker.put(key, worker);
+            if (owner != null)
+                metrics.recordAffinity(owner == worker);
+        }
+
+        Runnable wrapped = () -> {
+            long start = System.nanoTime();
+            long allocated = ExecutorMetrics.currentThreadAllocatedBytes();
+            boolean failed = true;
+            metrics.recordHandoff(start - handedOff);
+            if (entry != null && !duplicate)
+                entry.startNanos = start;
+            try {
+                if (duplicate) {
+                    if (((SpeculativeTask<?>) task).runAttempt())
+                        metrics.recordSpeculativeWin();
+                } else
                     task.run();
-                } finally {
-                    long duration = System.nanoTime() - start;
+                failed = false;
+            } finally {
+                long duration = System.nanoTime() - start;
+                metrics.recordTask(duration, ExecutorMetrics.currentThreadAllocatedBytes() - allocated, failed);
+
+                if (entry != null)
+                    entry.durationNanos.compareAndSet(-1, System.nanoTime() - entry.startNanos);
+                worker.addTimeUsed(duration);
 
+                if (spinHandoff) {
+                    // no monitor, no broadcast: queue ourselves and wake only the waiting submitter
+                    inFlight.decrementAndGet();
+                    worker.unclaim();
+                    finished.add(worker);
+                    Thread submitter = waitingSubmitter;
+                    if (submitter != null)
+                        LockSupport.unpark(submitter);
+                } else
                     synchronized (this) {
                         inFlight.decrementAndGet();
-                        worker.addTimeUsed(duration);
-                        idleMinHeap.add(worker);
+                        policy.workerIdle(worker);
                         notifyAll();
                     }
-                }
-            };
+            }
+        };
 
+        inFlight.incrementAndGet();
+        try {
             worker.newTask(wrapped);
-            inFlight.incrementAndGet();
+        } catch (RuntimeException e) {
+            inFlight.decrementAndGet();
+            throw e;
         }
     }
 
+    private void awaitSignal(long timeoutNanos) {
+        /// wait (holding the monitor's turn) until some worker finishes a task, or until
+        /// timeoutNanos passed if positive; callers re-check their own condition afterwards
+
+        if (!spinHandoff) {
+            try {
+                if (timeoutNanos > 0)
+                    TimeUnit.NANOSECONDS.timedWait(this, timeoutNanos);
+                else
+                    wait();
+            } catch (InterruptedException ignored) {}
+            return;
+        }
+
+        // workers never take the monitor in this mode (not even to retire, see tryRetireSpinning),
+        // so we can keep it while we spin/park
+        long deadline = System.nanoTime() + timeoutNanos;
+        waitingSubmitter = Thread.currentThread();
+        try {
+            for (int round = 0; finished.isEmpty(); round++) {
+                long remaining = timeoutNanos > 0 ? deadline - System.nanoTime() : Long.MAX_VALUE;
+                if (remaining <= 0)
+                    break;
+
+                if (round < HandoffSlot.SPINS)
+                    Thread.onSpinWait();
+                else if (round < HandoffSlot.SPINS + HandoffSlot.YIELDS)
+                    Thread.yield();
+                else if (timeoutNanos > 0)
+                    LockSupport.parkNanos(this, remaining);
+                else
+                    LockSupport.park(this);
+            }
+        } finally {
+            waitingSubmitter = null;
+        }
+        drainFinished();
+    }
+
+    private void drainFinished() {
+        /// return workers that finished in spin-handoff mode to the policy and drop the ones
+        /// that retired (holding the monitor)
+
+        TiredThread worker;
+        while ((worker = finished.poll()) != null)
+            policy.workerIdle(worker);
+        while ((worker = retiring.poll()) != null)
+            policy.removeIdle(worker);
+    }
+
     public synchronized void submitAll(Iterable<Runnable> tasks) {
-        /// submit tasks one by one and wait until all finish
+        /// submit tasks longest-first (LPT) and wait until all finish; equal-cost tasks keep
+        /// their order, and each goes to the worker the policy picks among the idle ones
+        /// (under fatigue-min the heaviest tasks land on the least fatigued workers)
+
+        List<Runnable> ordered = new ArrayList<>();
+        boolean weighted = false;
+        for (Runnable task : tasks) {
+            if (task == null)
+                throw new NullPointerException("Task is null.");
+            ordered.add(task);
+            weighted |= TiredTask.costOf(task) > 0;
+        }
+        if (weighted)
+            ordered.sort(Comparator.comparingLong(TiredTask::costOf).reversed());
+
+        List<BatchTask> batch = speculationFactor > 0 ? new ArrayList<>(ordered.size()) : null;
+        AffinityQueues queues = affinity ? new AffinityQueues(ordered) : null;
 
-        for (Runnable task : tasks)
-            submit(task);
+        for (int i = 0; i < ordered.size(); i++) {
+            TiredThread worker = awaitIdleWorker();
+            Runnable task = queues == null ? ordered.get(i) : queues.next(worker);
+
+            BatchTask entry = null;
+            if (batch != null) {
+                entry = new BatchTask(task);
+                batch.add(entry);
+            }
+            handOff(worker, task, entry, false);
+        }
+
+        if (batch != null) {
+            awaitBatch(batch);
+            return;
+        }
 
         while (inFlight.get() != 0)
-            try {
-                wait();
-            } catch (InterruptedException ignored) {}
+            awaitSignal(0);
+        drainFinished();
+    }
+
+    /**
+     * Pending tasks of one affinity-mode batch, split by the worker that last ran their key.
+     * Each queue keeps the batch (LPT) order.
+     */
+    private final class AffinityQueues {
+        private final Map<TiredThread, ArrayDeque<Runnable>> owned = new HashMap<>();
+        private final ArrayDeque<Runnable> unowned = new ArrayDeque<>();
+
+        AffinityQueues(List<Runnable> ordered) {
+            for (Runnable task : ordered) {
+                TiredThread owner = lastWorker.get(TiredTask.affinityOf(task));
+                if (owner == null)
+                    unowned.add(task);
+                else
+                    owned.computeIfAbsent(owner, w -> new ArrayDeque<>()).add(task);
+            }
+        }
+
+        Runnable next(TiredThread worker) {
+            /// the worker's own rows first, then rows nobody ran yet, then steal from the
+            /// worker with the most rows left
+
+            ArrayDeque<Runnable> own = owned.get(worker);
+            if (own != null && !own.isEmpty())
+                return own.poll();
+            if (!unowned.isEmpty())
+                return unowned.poll();
+
+            ArrayDeque<Runnable> victim = null;
+            for (ArrayDeque<Runnable> queue : owned.values())
+                if (victim == null || queue.size() > victim.size())
+                    victim = queue;
+            return victim.poll();
+        }
+    }
+
+    private void awaitBatch(List<BatchTask> batch) {
+        /// wait until every batch task has a finished attempt, duplicating stragglers meanwhile;
+        /// losing attempts may still be running when this returns, their results are discarded
+
+        while (true) {
+            List<Long> durations = new ArrayList<>(batch.size());
+            for (BatchTask entry : batch)
+                if (entry.durationNanos.get() >= 0)
+                    durations.add(entry.durationNanos.get());
+            if (durations.size() == batch.size())
+                return;
+
+            awaitSignal(speculateStragglers(batch, durations));
+        }
+    }
+
+    private long speculateStragglers(List<BatchTask> batch, List<Long> durations) {
+        /// launch duplicates of tasks running past speculationFactor × median once half the
+        /// batch has finished; returns nanos until the next running task crosses the threshold
+        /// (0: nothing to time, a finishing task will notify)
+
+        if (durations.size() * 2 < batch.size())
+            return 0;
+
+        durations.sort(null);
+        long threshold = (long) (speculationFactor * durations.get(durations.size() / 2));
+        long now = System.nanoTime();
+        long next = Long.MAX_VALUE;
+
+        for (BatchTask entry : batch) {
+            if (entry.durationNanos.get() >= 0 || entry.duplicated || !(entry.task instanceof SpeculativeTask))
+                continue;
+
+            // a task whose worker hasn't started it yet can't straggle for another threshold,
+            // and nothing notifies us when it starts, so look again then
+            long elapsed = entry.startNanos == 0 ? 0 : now - entry.startNanos;
+            if (entry.startNanos == 0 || elapsed < threshold)
+                next = Math.min(next, threshold - elapsed);
+            else {
+                TiredThread worker = takeIdleWorker();
+                if (worker == null)
+                    continue;
+                entry.duplicated = true;
+                metrics.recordSpeculativeLaunch();
+                metrics.recordSubmit(0);
+                handOff(worker, entry.task, entry, true);
+            }
+        }
+
+        return next == Long.MAX_VALUE ? 0 : Math.max(next, 1);
     }
 
     public void shutdown() {
@@ -84,24 +505,36 @@ public class TiredExecutor {
     }
 
     public synchronized String getWorkerReport() {
-        /// return readable statistics for each worker
+        /// return readable statistics for each worker, retired ones included
 
         StringBuilder sb = new StringBuilder();
 
         for (TiredThread t : workers)
-            sb.append(String.format("Worker %d: Used = %d, Idle = %d, Fatigue = %.2f\n",
-                            t.getWorkerId(), t.getTimeUsed() , t.getTimeIdle(), t.getFatigue()));
-        sb.append(String.format("\nFairness : %.3e\n%n", getFairness()));
+            sb.append(String.format("Worker %d: Used = %d, Idle = %d, Fatigue = %.2f%s\n",
+                            t.getWorkerId(), t.getTimeUsed() , t.getTimeIdle(), t.getFatigue(),
+                            t.isRetired() ? " (retired)" : ""));
+        sb.append(String.format("\nPolicy : %s\nFairness : %.3e\nThroughput : %.1f tasks/s\n",
+                policy.getName(), getFairness(), getThroughput()));
+        if (minThreads != maxThreads)
+            sb.append(String.format("Pool : %d live (min %d, max %d), %d retired\n",
+                    liveWorkers.get(), minThreads, maxThreads, workers.size() - liveWorkers.get()));
+        sb.append(String.format("%n"));
 
         return sb.toString();
     }
 
+    private double getThroughput() {
+        /// completed tasks per second of wall time since the executor started
+
+        return metrics.getTasksCompleted() / Math.max(1e-9, metrics.getElapsedNanos() / 1e9);
+    }
+
     private double getFairness() {
         double sum = 0;
         for (TiredThread worker : workers)
             sum += worker.getFatigue();
 
-        double avg = sum / workers.length;
+        double avg = sum / workers.size();
         sum = 0;
 
         for (TiredThread worker : workers)
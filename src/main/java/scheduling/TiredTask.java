@@ -0,0 +1,66 @@
+package scheduling;
+
+/**
+ * A task with an estimated cost attached, in any unit as long as tasks submitted
+ * together use the same one (the engine uses floating-point operations).
+ * {@link TiredExecutor#submitAll} starts costlier tasks first; plain Runnables count as cost 0.
+ * An optional affinity key (the engine uses the first row of the range a task touches) lets an
+ * executor in affinity mode send the task to the worker that last ran the same key.
+ */
+public class TiredTask implements Runnable {
+
+    private final Runnable task;
+    private final long cost;
+    private final int affinity; // -1 when the task has no affinity
+
+    public TiredTask(Runnable task, long cost) {
+        this(task, cost, -1);
+    }
+
+    public TiredTask(Runnable task, long cost, int affinity) {
+        if (task == null)
+            throw new NullPointerException("Task is null.");
+        if (cost < 0)
+            throw new IllegalArgumentException("Task cost must be non-negative: " + cost);
+
+        this.task = task;
+        this.cost = cost;
+        this.affinity = affinity;
+    }
+
+    protected TiredTask(long cost, int affinity) {
+        /// for subclasses that override run()
+
+        if (cost < 0)
+            throw new IllegalArgumentException("Task cost must be non-negative: " + cost);
+
+        this.task = null;
+        this.cost = cost;
+        this.affinity = affinity;
+    }
+
+    public long getCost() {
+        return cost;
+    }
+
+    public int getAffinity() {
+        return affinity;
+    }
+
+    @Override
+    public void run() {
+        task.run();
+    }
+
+    public static long costOf(Runnable task) {
+        /// estimated cost of any task, 0 when it carries none
+
+        return task instanceof TiredTask ? ((TiredTask) task).getCost() : 0;
+    }
+
+    public static int affinityOf(Runnable task) {
+        /// affinity key of any task, -1 when it carries none
+
+        return task instanceof TiredTask ? ((TiredTask) task).getAffinity() : -1;
+    }
+}
@@ -4,7 +4,9 @@ import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 
 public class TiredThread extends Thread implements Comparable<TiredThread> {
 
@@ -17,19 +19,85 @@ public class TiredThread extends Thread implements Comparable<TiredThread> {
 
     // Single-slot handoff queue; executor will put tasks here
     private final BlockingQueue<Runnable> handoff = new ArrayBlockingQueue<>(1);
+    private final HandoffSlot slot; // replaces the queue in spin-handoff mode, null otherwise
 
     private final AtomicBoolean busy = new AtomicBoolean(false); // Indicates if the worker is currently executing a task
 
     private  final  AtomicLong timeUsed = new AtomicLong(0); // Total time spent executing tasks
     private final AtomicLong timeIdle = new AtomicLong(0); // Total time spent idle
     private final AtomicLong idleStartTime = new AtomicLong(0); // Timestamp when the worker became idle
+    private final AtomicLong tasksRun = new AtomicLong(0); // Tasks taken off the handoff queue
+
+    private long idleTimeoutNanos = 0; // 0: wait for tasks forever
+    private Predicate<TiredThread> mayRetire = null; // asked once the idle timeout expires
+    private final AtomicBoolean retired = new AtomicBoolean(false); // Exited after an idle timeout
+
+    // spin-handoff mode: who owns this worker while the policy lists it as idle. The executor
+    // claims it for a task and an expiring idle timeout claims it for retirement, without the
+    // executor's monitor
+    private static final int IDLE = 0, CLAIMED = 1, RETIRING = 2, RETIRED = 3;
+    private final AtomicInteger claim = new AtomicInteger(IDLE);
 
     public TiredThread(int id, double fatigueFactor) {
+        this(id, fatigueFactor, false);
+    }
+
+    public TiredThread(int id, double fatigueFactor, boolean spinHandoff) {
         this.id = id;
         this.fatigueFactor = fatigueFactor;
+        this.slot = spinHandoff ? new HandoffSlot() : null;
         setName(String.format("FF=%.2f", fatigueFactor));
     }
 
+    public boolean isSpinHandoff() {
+        return slot != null;
+    }
+
+    void setRetirement(long idleTimeoutNanos, Predicate<TiredThread> mayRetire) {
+        /// let an elastic pool retire this worker after idleTimeoutNanos without a task
+        /// (must be called before start)
+
+        this.idleTimeoutNanos = idleTimeoutNanos;
+        this.mayRetire = mayRetire;
+    }
+
+    public boolean isRetired() {
+        return retired.get();
+    }
+
+    boolean claim() {
+        /// spin-handoff mode: reserve this idle worker for a task; false if it retired instead
+        /// (waits out a retirement attempt that may still back off)
+
+        while (true) {
+            int state = claim.get();
+            if (state == IDLE && claim.compareAndSet(IDLE, CLAIMED))
+                return true;
+            if (state == RETIRED)
+                return false;
+            Thread.onSpinWait();
+        }
+    }
+
+    void unclaim() {
+        /// spin-handoff mode: the claimed task finished, the worker may be picked again
+
+        claim.set(IDLE);
+    }
+
+    boolean beginRetiring() {
+        /// spin-handoff mode: keep the executor from claiming this worker while it decides
+        /// whether to retire; false if it was already claimed for a task
+
+        return claim.compareAndSet(IDLE, RETIRING);
+    }
+
+    void endRetiring(boolean retire) {
+        ///
+
+        claim.set(retire ? RETIRED : IDLE);
+    }
+
     public int getWorkerId() {
         return id;
     }
@@ -50,6 +118,14 @@ public class TiredThread extends Thread implements Comparable<TiredThread> {
         return timeIdle.get();
     }
 
+    public long getTasksRun() {
+        return tasksRun.get();
+    }
+
+    public double getFatigueFactor() {
+        return fatigueFactor;
+    }
+
     /**
      * Assign a task to this worker.
      * This method is non-blocking: if the worker is not ready to accept a task,
@@ -58,7 +134,7 @@ public class TiredThread extends Thread implements Comparable<TiredThread> {
     public void newTask(Runnable task) {
         ///
 
-        if (!handoff.offer(task))
+        if (!(slot != null ? slot.offer(task) : handoff.offer(task)))
             throw new IllegalStateException("Handoff rejected.");
     }
 
@@ -69,6 +145,11 @@ public class TiredThread extends Thread implements Comparable<TiredThread> {
     public void shutdown() {
         ///
 
+        if (slot != null) {
+            slot.put(POISON_PILL);
+            return;
+        }
+
         try {
             handoff.put(POISON_PILL);
         } catch (InterruptedException e){
@@ -78,29 +159,74 @@ public class TiredThread extends Thread implements Comparable<TiredThread> {
     }
 
     @Override
-    public void run() {
+    public synchronized void start() {
+        /// idle time counts from here, not from whenever the OS first schedules the thread
 
         idleStartTime.set(System.nanoTime());
+        super.start();
+    }
+
+    @Override
+    public void run() {
+
+        long nextRetireCheck = 0; // pushed back each time the pool refuses to let us go
         while (alive.get()) {
             Runnable task;
             try {
-                task = handoff.take();
+                if (idleTimeoutNanos > 0) {
+                    long deadline = Math.max(idleStartTime.get() + idleTimeoutNanos, nextRetireCheck);
+                    long timeout = Math.max(0, deadline - System.nanoTime());
+                    task = slot != null ? slot.poll(timeout) : handoff.poll(timeout, TimeUnit.NANOSECONDS);
+                } else
+                    task = slot != null ? slot.take() : handoff.take();
             } catch (InterruptedException e) {
                 throw new RuntimeException(e);
             }
 
+            if (task == null) {
+                // idle timeout: leave only if the pool agrees (it may be at its minimum size,
+                // or have just picked us for a task)
+                if (mayRetire.test(this)) {
+                    timeIdle.addAndGet(System.nanoTime() - idleStartTime.get());
+                    retired.set(true);
+                    alive.set(false);
+                    return;
+                }
+                nextRetireCheck = System.nanoTime() + idleTimeoutNanos;
+                continue;
+            }
+
             if (task == POISON_PILL) {
                 alive.set(false);
                 return;
             }
             timeIdle.addAndGet(System.nanoTime() - idleStartTime.get());
+            // counted before the task runs: the task may hand this worker back to the policy,
+            // which can order idle workers by it (LeastLoadedPolicy)
+            tasksRun.incrementAndGet();
             busy.set(true);
 
+            TaskEvent event = new TaskEvent();
+            if (event.isEnabled()) {
+                // the fatigue is taken before the task runs, so only while recording
+                event.workerId = id;
+                event.fatigueFactor = fatigueFactor;
+                event.fatigue = getFatigue();
+            }
+            event.begin();
+            boolean failed = true;
+
             try {
                 task.run();
+                failed = false;
             } catch (RuntimeException e) {
                 throw new RuntimeException(e.getMessage());
             } finally {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.failed = failed;
+                    event.commit();
+                }
                 busy.set(false);
                 idleStartTime.set(System.nanoTime());
             }
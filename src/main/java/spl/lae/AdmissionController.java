@@ -0,0 +1,82 @@
+package spl.lae;
+
+/**
+ * Memory-based admission for engines running side by side (batch mode).
+ * Each run reserves its estimated peak (see {@link MemoryEstimator}) before submitting any
+ * task and waits while the reservations of the runs already admitted leave too little room;
+ * a run that could never fit is rejected right away instead of waiting forever.
+ * Batch jobs reserve a provisional amount from their input size before parsing, and resize
+ * it to the plan's estimate once it is known.
+ */
+public class AdmissionController {
+
+    private final long capacity;
+    private long reserved = 0;
+    private int running = 0;
+
+    public AdmissionController(long capacityBytes) {
+        if (capacityBytes <= 0)
+            throw new IllegalArgumentException("Admission capacity must be positive: " + capacityBytes);
+        this.capacity = capacityBytes;
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    public synchronized long getReserved() {
+        return reserved;
+    }
+
+    public synchronized int getRunning() {
+        return running;
+    }
+
+    public synchronized void acquire(long bytes) throws InterruptedException {
+        /// block until bytes fit next to the runs already admitted, then reserve them
+
+        if (bytes > capacity)
+            throw new IllegalStateException(String.format(
+                    "Estimated peak memory of %d bytes exceeds the budget of %d bytes.", bytes, capacity));
+
+        while (reserved + bytes > capacity)
+            wait();
+        reserved += bytes;
+        running++;
+    }
+
+    public synchronized void resize(long from, long to) throws InterruptedException {
+        /// change an admitted run's reservation from `from` to `to` bytes; a run that has to wait
+        /// for room gives its reservation back meanwhile, so runs growing side by side can't
+        /// deadlock on each other's provisional reservations
+
+        if (to > capacity)
+            throw new IllegalStateException(String.format(
+                    "Estimated peak memory of %d bytes exceeds the budget of %d bytes.", to, capacity));
+
+        reserved -= from;
+        notifyAll();
+        try {
+            while (reserved + to > capacity)
+                wait();
+        } catch (InterruptedException e) {
+            // the caller still releases `from`, but other runs may have been admitted into it
+            // meanwhile: wait for it to fit again rather than overbook
+            while (reserved + from > capacity)
+                try {
+                    wait();
+                } catch (InterruptedException ignored) {}
+            reserved += from;
+            throw e;
+        }
+        reserved += to;
+    }
+
+    public synchronized void release(long bytes) {
+        /// return a reservation made by acquire
+
+        reserved -= bytes;
+        running--;
+        notifyAll();
+    }
+}
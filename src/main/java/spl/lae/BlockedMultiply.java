@@ -0,0 +1,54 @@
+package spl.lae;
+
+/**
+ * Cache-blocked dense multiply on plain row-major arrays.
+ * Works tile by tile in i-k-j order, so the innermost loop streams over a row of B
+ * and a row of C instead of striding down a column.
+ */
+public final class BlockedMultiply {
+
+    public static final int DEFAULT_BLOCK = 64;
+
+    private BlockedMultiply() {}
+
+    public static double[][] multiply(double[][] a, double[][] b) {
+        /// return a × b computed with the default block size
+
+        if (a.length == 0 || b.length == 0)
+            throw new IllegalArgumentException("Matrix Length Mismatch");
+        if (a[0].length != b.length)
+            throw new IllegalArgumentException("Matrix Length Mismatch");
+
+        double[][] c = new double[a.length][b[0].length];
+        multiplyAdd(a, b, c, 0, a.length, DEFAULT_BLOCK);
+        return c;
+    }
+
+    public static void multiplyAdd(double[][] a, double[][] b, double[][] c, int rowFrom, int rowTo, int block) {
+        /// c[rowFrom..rowTo) += a[rowFrom..rowTo) × b, tile by tile
+
+        int inner = b.length;
+        int cols = inner == 0 ? 0 : b[0].length;
+
+        for (int ii = rowFrom; ii < rowTo; ii += block) {
+            int iMax = Math.min(ii + block, rowTo);
+            for (int kk = 0; kk < inner; kk += block) {
+                int kMax = Math.min(kk + block, inner);
+                for (int jj = 0; jj < cols; jj += block) {
+                    int jMax = Math.min(jj + block, cols);
+
+                    for (int i = ii; i < iMax; i++) {
+                        double[] aRow = a[i];
+                        double[] cRow = c[i];
+                        for (int k = kk; k < kMax; k++) {
+                            double aik = aRow[k];
+                            double[] bRow = b[k];
+                            for (int j = jj; j < jMax; j++)
+                                cRow[j] += aik * bRow[j];
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package spl.lae;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import memory.BufferPool;
+import memory.LockStats;
+import scheduling.ExecutorMetrics;
+import scheduling.LatencyHistogram;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Metrics registry of a {@link LinearAlgebraEngine}.
+ * Keeps per-operator statistics (keyed by the same label the engine prints for each step,
+ * e.g. "ADD" or "MULTIPLY (TILED)") next to the executor's own metrics, and exports both as JSON.
+ */
+public class EngineMetrics {
+
+    private static final ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    /**
+     * Accumulated statistics of every step run under one operator label.
+     */
+    public static class OperatorStats {
+        private long steps = 0;
+        private long tasks = 0;
+        private long bytesAllocated = 0;
+        private final LatencyHistogram wallTime = new LatencyHistogram();
+        private LockStats leftLocks = null;  // lock counters of the operand matrices,
+        private LockStats rightLocks = null; // only kept when lock profiling is on
+
+        public synchronized long getSteps() {
+            return steps;
+        }
+
+        public synchronized long getTasks() {
+            return tasks;
+        }
+
+        public synchronized long getBytesAllocated() {
+            return bytesAllocated;
+        }
+
+        public LatencyHistogram getWallTime() {
+            return wallTime;
+        }
+
+        public synchronized LockStats getLeftLocks() {
+            return leftLocks;
+        }
+
+        public synchronized LockStats getRightLocks() {
+            return rightLocks;
+        }
+
+        synchronized void record(long nanos, int taskCount, long bytes) {
+            steps++;
+            tasks += taskCount;
+            bytesAllocated += Math.max(0, bytes);
+            wallTime.record(nanos);
+        }
+
+        synchronized void recordLocks(LockStats left, LockStats right) {
+            if (left != null) {
+                if (leftLocks == null)
+                    leftLocks = new LockStats();
+                leftLocks.merge(left);
+            }
+            if (right != null) {
+                if (rightLocks == null)
+                    rightLocks = new LockStats();
+                rightLocks.merge(right);
+            }
+        }
+
+        synchronized Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("steps", steps);
+            map.put("tasks", tasks);
+            map.put("bytesAllocated", bytesAllocated);
+            map.put("wallTime", wallTime.toMap());
+            if (leftLocks != null || rightLocks != null) {
+                Map<String, Object> locks = new LinkedHashMap<>();
+                if (leftLocks != null)
+                    locks.put("left", leftLocks.toMap());
+                if (rightLocks != null)
+                    locks.put("right", rightLocks.toMap());
+                map.put("locks", locks);
+            }
+            return map;
+        }
+    }
+
+    private final ExecutorMetrics executorMetrics;
+    private final Map<String, OperatorStats> operators = new LinkedHashMap<>();
+    private final LatencyHistogram runTime = new LatencyHistogram();
+    private volatile BufferPool bufferPool = null;
+    private final LongAccumulator peakTaskResident = new LongAccumulator(Math::max, 0); // out-of-core runs
+
+    EngineMetrics(ExecutorMetrics executorMetrics) {
+        this.executorMetrics = executorMetrics;
+    }
+
+    void recordStep(String label, long nanos, int tasks, long bytesAllocated) {
+        operatorStats(label).record(nanos, tasks, bytesAllocated);
+    }
+
+    void recordLocks(String label, LockStats left, LockStats right) {
+        /// fold the lock counters of one step's operand matrices into its operator
+
+        operatorStats(label).recordLocks(left, right);
+    }
+
+    private OperatorStats operatorStats(String label) {
+        synchronized (operators) {
+            return operators.computeIfAbsent(label, k -> new OperatorStats());
+        }
+    }
+
+    void setBufferPool(BufferPool bufferPool) {
+        this.bufferPool = bufferPool;
+    }
+
+    public BufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    void recordTaskResidentBytes(long bytes) {
+        /// bytes an out-of-core task had mapped or buffered at once
+
+        peakTaskResident.accumulate(bytes);
+    }
+
+    public long getPeakTaskResidentBytes() {
+        /// most bytes any out-of-core task kept resident, 0 without out-of-core runs
+
+        return peakTaskResident.get();
+    }
+
+    void recordRun(long nanos) {
+        runTime.record(nanos);
+    }
+
+    public Map<String, OperatorStats> getOperators() {
+        synchronized (operators) {
+            return Collections.unmodifiableMap(new LinkedHashMap<>(operators));
+        }
+    }
+
+    public OperatorStats getOperator(String label) {
+        synchronized (operators) {
+            return operators.get(label);
+        }
+    }
+
+    public LatencyHistogram getRunTime() {
+        return runTime;
+    }
+
+    public ExecutorMetrics getExecutorMetrics() {
+        return executorMetrics;
+    }
+
+    public String getLockReport() {
+        /// per-operator lock contention of the left and right operand matrices
+
+        StringBuilder report = new StringBuilder("Lock contention:");
+        for (Map.Entry<String, OperatorStats> entry : getOperators().entrySet()) {
+            LockStats left = entry.getValue().getLeftLocks();
+            LockStats right = entry.getValue().getRightLocks();
+            if (left == null && right == null)
+                continue;
+
+            report.append("\n").append(entry.getKey());
+            if (left != null)
+                report.append("\n  left:  ").append(left);
+            if (right != null)
+                report.append("\n  right: ").append(right);
+        }
+
+        return report.toString();
+    }
+
+    public Map<String, Object> toMap() {
+        /// snapshot of engine and executor metrics
+
+        Map<String, Object> ops = new LinkedHashMap<>();
+        for (Map.Entry<String, OperatorStats> entry : getOperators().entrySet())
+            ops.put(entry.getKey(), entry.getValue().toMap());
+
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("runTime", runTime.toMap());
+        map.put("operators", ops);
+        map.put("executor", executorMetrics.toMap());
+        if (bufferPool != null)
+            map.put("bufferPool", bufferPool.toMap());
+        if (peakTaskResident.get() > 0)
+            map.put("peakTaskResidentBytes", peakTaskResident.get());
+        return map;
+    }
+
+    public String toJson() {
+        try {
+            return mapper.writeValueAsString(toMap());
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to serialize metrics: " + e.getMessage());
+        }
+    }
+
+    public void writeJson(String filePath) throws IOException {
+        mapper.writeValue(new File(filePath), toMap());
+    }
+}
@@ -0,0 +1,124 @@
+package spl.lae;
+
+import parser.ComputationNode;
+import parser.ComputationNodeType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Repeated evaluation of one expression tree whose leaves change between evaluations.
+ * The session keeps the tree's structure (run() resolves nodes and drops their children)
+ * and the value of every operator node; after {@link #update} only the operators on the
+ * path from the changed leaves to the root are recomputed, each as a one-step run of the
+ * engine, whose executor stays up until {@link #close}.
+ * Operands are copied into every step, since the engine may update them in place.
+ */
+public class EvaluationSession implements AutoCloseable {
+
+    private final LinearAlgebraEngine engine;
+    private final ComputationNode root;
+    private final List<PlanStep> steps; // operator nodes, children first
+    private final Map<ComputationNode, List<ComputationNode>> children = new IdentityHashMap<>();
+    private final Map<ComputationNode, ComputationNode> parents = new IdentityHashMap<>();
+    private final Map<ComputationNode, double[][]> values = new IdentityHashMap<>();
+    private final Set<ComputationNode> dirty = Collections.newSetFromMap(new IdentityHashMap<>());
+    private int lastRecomputed = 0;
+
+    public EvaluationSession(LinearAlgebraEngine engine, ComputationNode root) {
+        /// take over the engine and an unresolved tree; nothing is computed before evaluate()
+
+        if (engine == null || root == null)
+            throw new NullPointerException("Engine and tree are required.");
+        this.engine = engine;
+        this.root = root;
+
+        Plan plan = engine.plan(root); // shape errors surface here; n-ary operators get nested
+        steps = List.copyOf(plan.getSteps());
+        for (PlanStep step : steps) {
+            ComputationNode node = step.getNode();
+            children.put(node, List.copyOf(node.getChildren()));
+            dirty.add(node);
+            for (ComputationNode child : node.getChildren()) {
+                parents.put(child, node);
+                if (child.getNodeType() == ComputationNodeType.MATRIX)
+                    values.put(child, child.getMatrix());
+            }
+        }
+        if (root.getNodeType() == ComputationNodeType.MATRIX)
+            values.put(root, root.getMatrix());
+    }
+
+    public void update(ComputationNode leaf, double[][] matrix) {
+        /// give a leaf of the tree a new value of the same shape; its ancestors become dirty
+
+        double[][] old = values.get(leaf);
+        if (old == null || children.containsKey(leaf))
+            throw new IllegalArgumentException("Node is not a leaf of this session's tree.");
+        if (matrix == null)
+            throw new NullPointerException("Matrix is null.");
+        if (matrix.length != old.length || (old.length > 0 && matrix[0].length != old[0].length))
+            throw new IllegalArgumentException("Leaf shape changed: expected " + old.length + "x"
+                    + (old.length == 0 ? 0 : old[0].length));
+
+        values.put(leaf, matrix);
+        ComputationNode node = parents.get(leaf);
+        while (node != null && dirty.add(node)) // an already dirty node has dirty ancestors
+            node = parents.get(node);
+    }
+
+    public double[][] evaluate() {
+        /// recompute the dirty operators, children first, and return the root's value
+        /// (the session's own copy; don't modify it)
+
+        lastRecomputed = 0;
+        for (PlanStep step : steps) {
+            ComputationNode node = step.getNode();
+            if (!dirty.contains(node))
+                continue;
+
+            List<ComputationNode> operands = new ArrayList<>();
+            for (ComputationNode child : children.get(node))
+                operands.add(new ComputationNode(copy(values.get(child))));
+            ComputationNode operator = new ComputationNode(step.getType(), operands);
+            operator.setExponent(node.getExponent());
+            values.put(node, engine.evaluate(operator));
+            lastRecomputed++;
+        }
+        dirty.clear();
+
+        return values.get(root);
+    }
+
+    public int getLastRecomputed() {
+        /// operator nodes recomputed by the last evaluate()
+
+        return lastRecomputed;
+    }
+
+    public int getOperatorCount() {
+        return steps.size();
+    }
+
+    public LinearAlgebraEngine getEngine() {
+        return engine;
+    }
+
+    @Override
+    public void close() {
+        /// shut down the engine's workers
+
+        engine.shutdown();
+    }
+
+    private static double[][] copy(double[][] matrix) {
+        double[][] copy = new double[matrix.length][];
+        for (int i = 0; i < matrix.length; i++)
+            copy[i] = matrix[i].clone();
+        return copy;
+    }
+}
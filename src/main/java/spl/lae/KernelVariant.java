@@ -0,0 +1,19 @@
+package spl.lae;
+
+/**
+ * Kernels the engine can use to evaluate a node.
+ * NAIVE is the original row-task path through SharedVector (vecMatMul for MULTIPLY);
+ * the others only apply to MULTIPLY (POWER runs its multiplies with TILED or STRASSEN)
+ * and work on plain row-major arrays, except STRUCTURED,
+ * which also covers ADD and is only chosen when an operand has a detected MatrixStructure.
+ */
+public enum KernelVariant {
+    NAIVE,
+    TILED,
+    STRASSEN,
+    SPARSE,
+    STRUCTURED,
+    SYRK, // A * T(A) or T(A) * A of one leaf; the TRANSPOSE step feeding it is elided
+    GEMV, // matrix × column vector or row vector × matrix
+    OUTER, // column vector × row vector
+}
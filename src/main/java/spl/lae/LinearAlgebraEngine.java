@@ -4,19 +4,206 @@ import parser.*;
 import memory.*;
 import scheduling.*;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
 
 public class LinearAlgebraEngine {
 
     private volatile SharedMatrix leftMatrix = new SharedMatrix();
     private volatile SharedMatrix rightMatrix = new SharedMatrix();
     private TiredExecutor executor;
+    private final Planner planner;
+
+    private final EngineMetrics metrics;
+    private ResultCache resultCache = null;
+    private BufferPool bufferPool = null;
+    private final Set<double[][]> pooledResults = Collections.newSetFromMap(new IdentityHashMap<>()); // intermediates this run may recycle
+    private Plan lastPlan = null;
+    private boolean explain = false;
+    private boolean lockProfiling = false;
+    private boolean pipelining = false;
+    private StreamingOutputWriter resultStream = null;
+    private long memoryBudget = 256L << 20; // out-of-core runs only
+    private Path spillDirectory = Paths.get(System.getProperty("java.io.tmpdir"));
+    private long heapBudget = 0; // 0 = no limit
+    private AdmissionController admission = null;
+    private long admittedBytes = -1; // reservation taken over for the next run, -1 for none
+    private long estimatedPeakBytes = 0;
+    private LockStats leftLocks = null;  // lock counters of the current step's operand
+    private LockStats rightLocks = null; // matrices, set by compute() when profiling
+    private int rowsPerTask = 1; // granularity of the create*Tasks methods, set per plan step
+    private int stepTaskCount = 0;
+    private boolean resultInLeftRows = false; // set by compute() when the result reuses its left operand's row arrays
 
     public LinearAlgebraEngine(int numThreads) {
         /// create executor with given thread count
 
-        executor = new TiredExecutor(numThreads);
+        this(numThreads, new FatigueMinPolicy());
+    }
+
+    public LinearAlgebraEngine(int numThreads, SchedulingPolicy policy) {
+        /// create executor with given thread count and worker selection policy
+
+        executor = new TiredExecutor(numThreads, policy);
+        planner = new Planner(numThreads);
+        metrics = new EngineMetrics(executor.getMetrics());
+    }
+
+    public LinearAlgebraEngine(int minThreads, int maxThreads, long idleTimeoutMillis, SchedulingPolicy policy) {
+        /// create an elastic executor; tasks are sized for the largest pool
+
+        this(minThreads, maxThreads, idleTimeoutMillis, policy, false);
+    }
+
+    public LinearAlgebraEngine(int minThreads, int maxThreads, long idleTimeoutMillis, SchedulingPolicy policy,
+                               boolean spinHandoff) {
+        /// create an elastic executor, optionally with the spin-then-park low-latency handoff
+
+        executor = new TiredExecutor(minThreads, maxThreads, idleTimeoutMillis, policy, spinHandoff);
+        planner = new Planner(maxThreads);
+        metrics = new EngineMetrics(executor.getMetrics());
+    }
+
+    public EngineMetrics getMetrics() {
+        /// per-operator and executor metrics; stays readable after the run finished
+
+        return metrics;
+    }
+
+    public void setMultiplyKernel(KernelVariant kernel) {
+        /// force a MULTIPLY kernel for this run, or null to let the planner choose by cost
+
+        planner.setForcedKernel(kernel);
+    }
+
+    public void setStrassenCutoff(int cutoff) {
+        /// size at or below which Strassen recursion falls back to the blocked kernel
+
+        planner.setStrassenCutoff(cutoff);
+    }
+
+    public void setExplain(boolean explain) {
+        /// print the plan before the run and again with actual timings after it
+
+        this.explain = explain;
+    }
+
+    public void setLockProfiling(boolean lockProfiling) {
+        /// count lock acquisitions, contention and tie-breaks of the operand matrices per operator
+
+        this.lockProfiling = lockProfiling;
+    }
+
+    public void setPipelining(boolean pipelining) {
+        /// run element-wise ADD/NEGATE consumers on each row of a MULTIPLY, ADD or NEGATE result
+        /// inside the task that produced it, instead of after the whole step's barrier;
+        /// not combined with speculation or the result cache (the fused intermediates never exist)
+
+        this.pipelining = pipelining;
+    }
+
+    public void setResultStream(StreamingOutputWriter resultStream) {
+        /// hand the root operator's rows to this writer as their tasks finish (not under
+        /// speculation, whose rows only exist once committed); the caller still has to
+        /// finish() it with the resolved root, which also covers roots that can't stream
+
+        this.resultStream = resultStream;
+    }
+
+    public void setMemoryBudget(long bytes) {
+        /// bytes the row bands of one out-of-core operator may keep resident across all workers
+
+        if (bytes <= 0)
+            throw new IllegalArgumentException("Memory budget must be positive: " + bytes);
+        this.memoryBudget = bytes;
+    }
+
+    public void setHeapBudget(long bytes) {
+        /// estimated peak heap a run may use (see MemoryEstimator), 0 for no limit; runs over it
+        /// are reordered to lower their peak, or rejected before any task is submitted
+
+        if (bytes < 0)
+            throw new IllegalArgumentException("Heap budget must not be negative: " + bytes);
+        this.heapBudget = bytes;
+    }
+
+    public void setAdmissionController(AdmissionController admission) {
+        /// share a memory admission controller with other engines (batch mode), or null
+
+        this.admission = admission;
+        this.admittedBytes = -1;
+    }
+
+    public void setAdmissionController(AdmissionController admission, long reservedBytes) {
+        /// as above, taking over a reservation of reservedBytes the caller made before parsing
+        /// the input; the next run resizes it to its estimated peak and releases it when done
+
+        this.admission = admission;
+        this.admittedBytes = reservedBytes;
+    }
+
+    public long getEstimatedPeakBytes() {
+        /// peak heap estimate of the last planned run
+
+        return estimatedPeakBytes;
+    }
+
+    public void setSpillDirectory(Path directory) {
+        /// where out-of-core runs keep their intermediate tile files
+
+        this.spillDirectory = directory;
+    }
+
+    public void setSpeculation(double slowdownFactor) {
+        /// duplicate row tasks running slowdownFactor × past their batch's median, 0 to disable;
+        /// row tasks then compute into scratch rows and commit them once
+
+        executor.setSpeculation(slowdownFactor);
+    }
+
+    public void setAffinity(boolean affinity) {
+        /// send each row range to the worker that produced it in the previous step where possible
+
+        executor.setAffinity(affinity);
+    }
+
+    public void setResultCache(ResultCache cache) {
+        /// share a result cache with other runs and engines, or null to disable caching
+
+        this.resultCache = cache;
+    }
+
+    public ResultCache getResultCache() {
+        return resultCache;
+    }
+
+    public void setBufferPool(BufferPool pool) {
+        /// take row and column arrays from pool and return intermediates to it once their
+        /// consumer has finished, or null to allocate everything fresh
+
+        this.bufferPool = pool;
+        metrics.setBufferPool(pool);
+    }
+
+    public BufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    public Plan getLastPlan() {
+        return lastPlan;
     }
 
     public ComputationNode run(ComputationNode computationRoot) {
@@ -32,70 +219,592 @@ public class LinearAlgebraEngine {
         return computationRoot;
     }
 
+    Plan plan(ComputationNode computationRoot) {
+        /// plan a tree without running it (nests n-ary operators, checks shapes)
+
+        return planner.plan(computationRoot);
+    }
+
+    double[][] evaluate(ComputationNode computationRoot) {
+        /// resolve a tree like run, but leave the workers up for further calls and skip the
+        /// reports; for EvaluationSession, which calls shutdown() at the end
+
+        long runStart = System.nanoTime();
+        Plan plan = planner.plan(computationRoot);
+        lastPlan = plan;
+        runSteps(plan, null, computationRoot);
+        metrics.recordRun(System.nanoTime() - runStart);
+        return computationRoot.getMatrix();
+    }
+
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    public TiledMatrix runOutOfCore(ComputationNode computationRoot) {
+        /// resolve a tree whose operands are disk-backed (see InputParser.setSpillDirectory)
+        /// band by band within the memory budget; the result stays on disk, to be streamed
+        /// out with OutputWriter and closed by the caller
+
+        long runStart = System.nanoTime();
+        try {
+            TiledMatrix result = new OutOfCoreEvaluator(executor, planner.getNumThreads(), memoryBudget,
+                    spillDirectory, metrics).evaluate(computationRoot);
+            metrics.recordRun(System.nanoTime() - runStart);
+            System.out.println("\n" + getWorkerReport());
+            return result;
+        } catch (IOException | RuntimeException e) {
+            throw new RuntimeException(e.getMessage());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     public void loadAndCompute(ComputationNode node) {
-        /// load operand matrices
-        /// create compute tasks & submit tasks to executor
-
-        while (node != null && node.findResolvable() != null) {
-            List<Runnable> tasks;
-            ComputationNode resolvablePointer = node.findResolvable(); // A+B+C+D
-
-            while (resolvablePointer.getChildren().size() > 2) {
-                resolvablePointer.associativeNesting();
-                resolvablePointer = resolvablePointer.findResolvable();
-            }
-
-            leftMatrix = new SharedMatrix(resolvablePointer.getChildren().get(0).getMatrix());
-            rightMatrix = null;
-
-            if (resolvablePointer.getChildren().size() == 2)
-                switch (resolvablePointer.getNodeType()) {
-                    case MULTIPLY: {
-                        rightMatrix = new SharedMatrix();
-                        rightMatrix.loadColumnMajor(resolvablePointer.getChildren().get(1).getMatrix());
-                        break;
-                    }
-                    case TRANSPOSE:
-                    case NEGATE:
-                        throw new RuntimeException("Unary Operator Receive More Than Single Operand.");
-                    default:
-                        rightMatrix = new SharedMatrix(resolvablePointer.getChildren().get(1).getMatrix());
+        /// plan the whole tree first (shape errors surface before any work is done),
+        /// then resolve nodes off the ready queue with the kernel chosen for each
+
+        long runStart = System.nanoTime();
+        long reservation = admittedBytes;
+        admittedBytes = -1;
+        Plan plan;
+        try {
+            plan = node == null ? new Plan() : planner.plan(node);
+
+            Map<ComputationNode, ResultCache.Key> cacheKeys = null;
+            if (resultCache != null && !plan.getSteps().isEmpty()) {
+                cacheKeys = new IdentityHashMap<>();
+                computeCacheKeys(plan, cacheKeys);
+                if (restoreCachedSubtrees(plan, cacheKeys) > 0) {
+                    plan = planner.plan(node);
+                    computeCacheKeys(plan, cacheKeys);
                 }
+            }
 
+            plan = checkMemory(plan);
+            lastPlan = plan;
+            if (explain)
+                System.out.println(plan.explain());
 
+            reservation = admit(reservation);
+            runSteps(plan, cacheKeys, node);
+        } finally {
+            if (reservation >= 0)
+                admission.release(reservation);
+        }
 
-            switch (resolvablePointer.getNodeType()) {
-                case ADD: {
-                    System.out.println("ADD");
-                    tasks = createAddTasks();
-                    break;
+        metrics.recordRun(System.nanoTime() - runStart);
+        if (explain)
+            System.out.println(plan.explain());
+
+        System.out.println("\n" + getWorkerReport());
+        if (lockProfiling)
+            System.out.println(metrics.getLockReport());
+        if (resultCache != null)
+            System.out.println(resultCache.getReport());
+        if (bufferPool != null)
+            System.out.println(bufferPool);
+        executor.shutdown();
+    }
+
+    private void runSteps(Plan plan, Map<ComputationNode, ResultCache.Key> cacheKeys, ComputationNode root) {
+        /// resolve the planned steps off the ready queue, in plan order
+
+        pooledResults.clear(); // the last run's results belong to its caller
+        Map<ComputationNode, PlanStep> consumers = pipelining && cacheKeys == null ? plan.consumers() : null;
+        Set<ComputationNode> pipelined = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        ReadyQueue ready = new ReadyQueue(plan);
+        while (!ready.isEmpty()) {
+            PlanStep step = ready.poll();
+            ComputationNode resolvablePointer = step.getNode();
+            if (pipelined.remove(resolvablePointer)) {
+                // already computed row by row inside its producer's tasks
+                ready.complete(step);
+                continue;
+            }
+            if (step.isElided()) {
+                // left unresolved: the SYRK product consuming it reads the leaf underneath
+                String label = stepLabel(step);
+                System.out.println(label);
+                step.recordActual(0, 0);
+                metrics.recordStep(label, 0, 0, 0);
+                ready.complete(step);
+                continue;
+            }
+
+            RowPipeline pipeline = consumers == null ? null : pipelineFor(step, consumers);
+            OperatorEvent event = new OperatorEvent();
+            event.begin();
+
+            long start = System.nanoTime();
+            long allocated = allocatedBytes();
+            stepTaskCount = 0;
+            resultInLeftRows = false;
+            leftLocks = rightLocks = null;
+            ResultCache.Key key = cacheKeys == null ? null : cacheKeys.get(resolvablePointer);
+            double[][] result = key != null && resultCache.contains(key) ? resultCache.get(key) : null;
+
+            boolean cached = result != null;
+            String label = cached ? step.getType() + " (CACHED)" : stepLabel(step);
+            System.out.println(label);
+            if (pipeline != null)
+                for (PlanStep consumer : pipeline.getConsumers())
+                    System.out.println(consumer.getType() + " (PIPELINED)");
+            boolean streamRows = resultStream != null && !isSpeculative()
+                    && (pipeline == null ? resolvablePointer : pipeline.getOutput()) == root;
+            List<double[][]> operands = recycling() ? operandMatrices(resolvablePointer, pipeline) : null;
+            if (!cached) {
+                result = compute(resolvablePointer, step, pipeline, streamRows);
+                if (key != null)
+                    resultCache.put(key, result);
+            }
+
+            if (pipeline == null)
+                resolvablePointer.resolve(result);
+            else {
+                // the producer and all but the last consumer are never materialized
+                pipeline.getOutput().resolve(result);
+                for (PlanStep consumer : pipeline.getConsumers()) {
+                    pipelined.add(consumer.getNode());
+                    consumer.recordActual(0, 0);
+                    metrics.recordStep(consumer.getType() + " (PIPELINED)", 0, 0, 0);
                 }
-                case MULTIPLY: {
-                    System.out.println("MULTIPLY");
-                    tasks = createMultiplyTasks();
+            }
+            if (operands != null)
+                recycle(operands, result, key == null);
+
+            long elapsed = System.nanoTime() - start;
+            step.recordActual(elapsed, stepTaskCount);
+            metrics.recordStep(label, elapsed, stepTaskCount, allocatedBytes() - allocated);
+            if (leftLocks != null || rightLocks != null)
+                metrics.recordLocks(label, leftLocks, rightLocks);
+
+            event.end();
+            if (event.shouldCommit()) {
+                event.operator = step.getType().toString();
+                event.kernel = step.getKernel().toString();
+                event.rows = step.getRows();
+                event.cols = step.getCols();
+                event.inner = step.getInner();
+                event.tasks = stepTaskCount;
+                event.cached = cached;
+                event.commit();
+            }
+            ready.complete(step);
+        }
+
+        if (ready.remaining() != 0)
+            throw new IllegalStateException("Computation tree has unresolvable nodes.");
+    }
+
+    private static List<double[][]> operandMatrices(ComputationNode node, RowPipeline pipeline) {
+        /// every matrix a step consumes, its left operand first
+
+        List<double[][]> operands = new ArrayList<>();
+        for (ComputationNode child : node.getChildren())
+            if (child.getNodeType() == ComputationNodeType.MATRIX) // not an elided TRANSPOSE
+                operands.add(child.getMatrix());
+        if (pipeline != null)
+            operands.addAll(pipeline.getOperands());
+        return operands;
+    }
+
+    private void recycle(List<double[][]> operands, double[][] result, boolean poolable) {
+        /// return the operands this run produced to the pool now that their only consumer is
+        /// done (inputs and cached results are never pooled); a result computed in its left
+        /// operand's rows takes over that operand instead
+
+        boolean fresh = !resultInLeftRows;
+        for (int i = 0; i < operands.size(); i++) {
+            double[][] operand = operands.get(i);
+            if (!pooledResults.remove(operand))
+                continue;
+            if (i == 0 && resultInLeftRows)
+                fresh = true;
+            else
+                bufferPool.release(operand);
+        }
+
+        if (fresh && poolable)
+            pooledResults.add(result);
+    }
+
+    private Plan checkMemory(Plan plan) {
+        /// estimate the plan's peak heap use; over the heap budget (or the admission capacity)
+        /// try the lowest-memory evaluation order, and reject the run if even that won't fit
+
+        long budget = heapBudget > 0 ? heapBudget : admission == null ? 0 : admission.getCapacity();
+        estimatedPeakBytes = MemoryEstimator.estimatePeak(plan);
+        if (budget == 0 || estimatedPeakBytes <= budget)
+            return plan;
+
+        Plan reordered = MemoryEstimator.lowMemoryOrder(plan);
+        long lower = MemoryEstimator.estimatePeak(reordered);
+        if (lower > budget)
+            throw new IllegalStateException(String.format(
+                    "Estimated peak memory of %d bytes exceeds the budget of %d bytes.", lower, budget));
+
+        System.out.printf("Reordered for memory: estimated peak %d -> %d bytes%n", estimatedPeakBytes, lower);
+        estimatedPeakBytes = lower;
+        return reordered;
+    }
+
+    private long admit(long reserved) {
+        /// wait until the admission controller has room for this run's estimated peak, growing
+        /// (or shrinking) a reservation taken over from the caller if there is one; returns the
+        /// bytes now reserved, -1 without a controller
+
+        if (admission == null)
+            return -1;
+
+        try {
+            if (reserved >= 0)
+                admission.resize(reserved, estimatedPeakBytes);
+            else
+                admission.acquire(estimatedPeakBytes);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for memory admission.");
+        }
+        return estimatedPeakBytes;
+    }
+
+    private static String stepLabel(PlanStep step) {
+        /// name printed and recorded in the metrics for a step, e.g. "ADD" or "MULTIPLY (TILED)"
+
+        return step.getKernel() == KernelVariant.NAIVE ? step.getType().toString()
+                : step.getType() + " (" + step.getKernel() + ")";
+    }
+
+    private RowPipeline pipelineFor(PlanStep step, Map<ComputationNode, PlanStep> consumers) {
+        /// the chain of NEGATE parents, and ADD parents whose other operand is already resolved,
+        /// that can consume step's rows as they are produced; null if there is none
+
+        boolean producer = step.getType() == ComputationNodeType.ADD || step.getType() == ComputationNodeType.NEGATE
+                || (step.getType() == ComputationNodeType.MULTIPLY && step.getKernel() != KernelVariant.STRASSEN
+                && step.getKernel() != KernelVariant.SYRK); // SYRK mirrors rows other tasks finished
+        if (!producer || isSpeculative())
+            return null;
+
+        List<PlanStep> chain = new ArrayList<>();
+        ComputationNode below = step.getNode();
+        for (PlanStep consumer = consumers.get(below); consumer != null; consumer = consumers.get(below)) {
+            if (consumer.getType() == ComputationNodeType.ADD) {
+                if (RowPipeline.otherOperand(consumer.getNode(), below).getNodeType() != ComputationNodeType.MATRIX)
                     break;
+            } else if (consumer.getType() != ComputationNodeType.NEGATE)
+                break;
+
+            chain.add(consumer);
+            below = consumer.getNode();
+        }
+
+        return chain.isEmpty() ? null : new RowPipeline(step.getNode(), chain);
+    }
+
+    private long allocatedBytes() {
+        /// bytes allocated so far by this thread plus every task run on the executor
+
+        return ExecutorMetrics.currentThreadAllocatedBytes() + executor.getMetrics().getBytesAllocated();
+    }
+
+    private void computeCacheKeys(Plan plan, Map<ComputationNode, ResultCache.Key> keys) {
+        /// canonical subtree hash of every planned node, bottom-up; leaves hash their content,
+        /// nodes already restored from the cache keep the key they were found under
+
+        for (PlanStep step : plan.getSteps()) {
+            List<ComputationNode> children = step.getNode().getChildren();
+            ResultCache.Key[] operands = new ResultCache.Key[children.size()];
+
+            for (int i = 0; i < operands.length; i++) {
+                ComputationNode child = children.get(i);
+                operands[i] = keys.get(child);
+                if (operands[i] == null) {
+                    operands[i] = ResultCache.keyOf(child.getMatrix());
+                    keys.put(child, operands[i]);
                 }
-                case NEGATE: {
-                    System.out.println("NEGATE");
-                    tasks = createNegateTasks();
-                    break;
+            }
+
+            keys.put(step.getNode(), step.getType() == ComputationNodeType.POWER
+                    ? ResultCache.keyOf(step.getType(), step.getKernel(), step.getNode().getExponent(), operands)
+                    : ResultCache.keyOf(step.getType(), step.getKernel(), operands));
+        }
+    }
+
+    private int restoreCachedSubtrees(Plan plan, Map<ComputationNode, ResultCache.Key> keys) {
+        /// resolve every outermost cached node straight from the cache, so nothing
+        /// underneath it gets scheduled; returns the number of nodes restored
+
+        List<PlanStep> steps = plan.getSteps();
+        int[] parent = plan.parentIndices();
+        boolean[] covered = new boolean[steps.size()];
+        int restored = 0;
+
+        // reverse plan order visits every parent before its operands
+        for (int i = steps.size() - 1; i >= 0; i--) {
+            if (parent[i] >= 0 && covered[parent[i]]) {
+                covered[i] = true;
+                continue;
+            }
+
+            ComputationNode node = steps.get(i).getNode();
+            long start = System.nanoTime();
+            double[][] cached = resultCache.get(keys.get(node));
+            if (cached != null) {
+                String label = node.getNodeType() + " (CACHED)";
+                System.out.println(label);
+                metrics.recordStep(label, System.nanoTime() - start, 0, 0);
+                node.resolve(cached);
+                covered[i] = true;
+                restored++;
+            }
+        }
+
+        return restored;
+    }
+
+    private double[][] compute(ComputationNode node, PlanStep step, RowPipeline pipeline, boolean streamRows) {
+        /// evaluate a single planned node whose operands are all resolved, with the pipeline's
+        /// consumers (if any) applied to each row by the task that produced it, and each
+        /// finished row handed to the result stream if streamRows
+
+        List<ComputationNode> children = node.getChildren();
+        rowsPerTask = Math.max(1, step.getRowsPerTask());
+        if (node.getNodeType() == ComputationNodeType.POWER)
+            return computePower(children.get(0).getMatrix(), node.getExponent(), step, streamRows);
+
+        switch (step.getKernel()) {
+            case STRASSEN: {
+                stepTaskCount = 7;
+                return new StrassenMultiply(planner.getStrassenCutoff())
+                        .multiply(children.get(0).getMatrix(), children.get(1).getMatrix(), executor);
+            }
+            case TILED: {
+                double[][] a = children.get(0).getMatrix();
+                double[][] b = children.get(1).getMatrix();
+                double[][] c = newMatrix(a.length, step.getCols());
+                executeTasks(finishingRows(createTiledMultiplyTasks(a, b, c), c.length, pipeline, streamRows,
+                        step.getCols(), r -> pipeline.finishRow(c[r], r), r -> c[r]));
+                return c;
+            }
+            case SPARSE: {
+                double[][] b = children.get(1).getMatrix();
+                SparseMultiply a = new SparseMultiply(children.get(0).getMatrix());
+                double[][] c = newMatrix(step.getRows(), step.getCols());
+                executeTasks(finishingRows(createSparseMultiplyTasks(a, b, c), c.length, pipeline, streamRows,
+                        step.getCols(), r -> pipeline.finishRow(c[r], r), r -> c[r]));
+                return c;
+            }
+            case SYRK: {
+                // A * T(A) from A's rows, or T(A) * A from a transposed copy; T(A) was never computed
+                SymmetricMultiply gram = children.get(0).getNodeType() == ComputationNodeType.TRANSPOSE
+                        ? SymmetricMultiply.transposed(children.get(1).getMatrix())
+                        : new SymmetricMultiply(children.get(0).getMatrix());
+                double[][] g = newMatrix(gram.size(), gram.size());
+                executeTasks(createSymmetricTasks(gram, g));
+                executeTasks(finishingRows(createMirrorTasks(gram, g), g.length, pipeline, streamRows,
+                        g.length, r -> pipeline.finishRow(g[r], r), r -> g[r]));
+                return g;
+            }
+            case GEMV:
+            case OUTER: {
+                VectorMultiply v = new VectorMultiply(children.get(0).getMatrix(), children.get(1).getMatrix());
+                double[][] c = newMatrix(step.getRows(), step.getCols());
+                int columnsPerTask = vectorColumnsPerTask(step);
+                if (columnsPerTask == 0) {
+                    executeTasks(finishingRows(createVectorRowTasks(v, c), c.length, pipeline, streamRows,
+                            step.getCols(), r -> pipeline.finishRow(c[r], r), r -> c[r]));
+                    return c;
                 }
-                case TRANSPOSE: {
 
-                    System.out.println("TRANSPOSE");
-                    tasks = createTransposeTasks();
+                executeTasks(createVectorColumnTasks(v, c, columnsPerTask));
+                if (pipeline != null || streamRows) // rows are only done once every column block is
+                    executeTasks(finishingRows(rowBands(c.length), c.length, pipeline, streamRows,
+                            step.getCols(), r -> pipeline.finishRow(c[r], r), r -> c[r]));
+                return c;
+            }
+            case STRUCTURED: {
+                StructuredKernel kernel = new StructuredKernel(node.getNodeType(), children.get(0), children.get(1));
+                double[][] c = newMatrix(step.getRows(), step.getCols());
+                executeTasks(finishingRows(createStructuredTasks(kernel, c, step.getInner()), c.length, pipeline,
+                        streamRows, step.getCols(), r -> pipeline.finishRow(c[r], r), r -> c[r]));
+                return c;
+            }
+            default:
+                break;
+        }
+
+        List<Runnable> tasks;
+        leftMatrix = new SharedMatrix(children.get(0).getMatrix());
+        rightMatrix = null;
+
+        if (children.size() == 2)
+            switch (node.getNodeType()) {
+                case MULTIPLY: {
+                    rightMatrix = new SharedMatrix();
+                    rightMatrix.setBufferPool(bufferPool);
+                    rightMatrix.loadColumnMajor(children.get(1).getMatrix());
                     break;
                 }
+                case TRANSPOSE:
+                case NEGATE:
+                    throw new RuntimeException("Unary Operator Receive More Than Single Operand.");
                 default:
-                    throw new RuntimeException("Unidentified Operator : " + resolvablePointer.getNodeType());
+                    rightMatrix = new SharedMatrix(children.get(1).getMatrix());
             }
 
-            executor.submitAll(tasks);
-            resolvablePointer.resolve(leftMatrix.readRowMajor());
+        if (lockProfiling) {
+            leftLocks = new LockStats();
+            leftMatrix.setLockStats(leftLocks);
+            if (rightMatrix != null) {
+                rightLocks = new LockStats();
+                rightMatrix.setLockStats(rightLocks);
+            }
         }
 
-        System.out.println("\n" + getWorkerReport());
-        executor.shutdown();
+        switch (node.getNodeType()) {
+            case ADD: {
+                tasks = createAddTasks();
+                break;
+            }
+            case MULTIPLY: {
+                tasks = createMultiplyTasks();
+                break;
+            }
+            case NEGATE: {
+                tasks = createNegateTasks();
+                break;
+            }
+            case TRANSPOSE: {
+                tasks = createTransposeTasks();
+                break;
+            }
+            default:
+                throw new RuntimeException("Unidentified Operator : " + node.getNodeType());
+        }
+
+        SharedMatrix rows = leftMatrix;
+        streamRows &= node.getNodeType() != ComputationNodeType.TRANSPOSE;
+        executeTasks(finishingRows(tasks, rows.length(), pipeline, streamRows,
+                step.getCols(), r -> pipeline.finishRow(rows.get(r), r), rows::takeRow));
+        // in affinity mode keep each row in the array (and cache) of the worker that produced it,
+        // and when streaming don't copy rows the writer already holds
+        boolean takeRows = executor.isAffinity() || streamRows;
+        leftMatrix.setBufferPool(bufferPool);
+        double[][] result = takeRows ? leftMatrix.takeRowMajor() : leftMatrix.readRowMajor();
+        resultInLeftRows = takeRows && !isSpeculative() && (node.getNodeType() == ComputationNodeType.ADD
+                || node.getNodeType() == ComputationNodeType.NEGATE);
+
+        if (recycling() && node.getNodeType() == ComputationNodeType.MULTIPLY) {
+            // the column-major reload, and the new rows once copied out, are only ours
+            rightMatrix.recycle();
+            if (!takeRows)
+                leftMatrix.recycle();
+        }
+        return result;
+    }
+
+    private double[][] computePower(double[][] a, int exponent, PlanStep step, boolean streamRows) {
+        /// a^exponent by binary exponentiation, lowest bit first: the base is squared once per
+        /// bit and multiplied into the accumulated product for every set bit; each multiply
+        /// writes into a spare buffer, and the base or product it replaces becomes the next spare
+
+        int n = a.length;
+        Deque<double[][]> spare = new ArrayDeque<>();
+        double[][] base = a, product = null;
+        for (int e = exponent; e > 0; e >>= 1) {
+            if ((e & 1) != 0) {
+                double[][] previous = product;
+                product = previous == null ? base : powerMultiply(previous, base, spare, step);
+                if (previous != null && previous != a && previous != base)
+                    spare.push(previous);
+            }
+            if (e > 1) {
+                double[][] previous = base;
+                base = powerMultiply(previous, previous, spare, step);
+                if (previous != a && previous != product)
+                    spare.push(previous);
+            }
+        }
+        if (base != a && base != product)
+            spare.push(base);
+
+        double[][] result = product == null || product == a ? newMatrix(n, n) : product;
+        if (product == null)
+            for (int i = 0; i < n; i++)
+                result[i][i] = 1.0;
+        else if (product == a)
+            for (int i = 0; i < n; i++)
+                System.arraycopy(a[i], 0, result[i], 0, n);
+
+        if (recycling())
+            for (double[][] buffer : spare)
+                bufferPool.release(buffer);
+        if (streamRows)
+            executeTasks(finishingRows(rowBands(n), n, null, true, n, null, r -> result[r]));
+        return result;
+    }
+
+    private double[][] powerMultiply(double[][] x, double[][] y, Deque<double[][]> spare, PlanStep step) {
+        /// x × y with the step's kernel, into a spare buffer when there is one
+
+        if (step.getKernel() == KernelVariant.STRASSEN) {
+            stepTaskCount += 7;
+            return new StrassenMultiply(planner.getStrassenCutoff()).multiply(x, y, executor);
+        }
+
+        double[][] c;
+        if (spare.isEmpty())
+            c = newMatrix(x.length, y[0].length);
+        else {
+            c = spare.pop();
+            for (double[] row : c) // the blocked kernel accumulates into c
+                Arrays.fill(row, 0.0);
+        }
+        executeTasks(createTiledMultiplyTasks(x, y, c));
+        return c;
+    }
+
+    private List<Runnable> finishingRows(List<Runnable> tasks, int rows, RowPipeline pipeline, boolean streamRows,
+                                         int cols, IntConsumer pipelineRow, IntFunction<double[]> finishedRow) {
+        /// wrap each row task (task t covers rows [t * rowsPerTask, ...)) so that before returning
+        /// it runs its rows through the pipeline's consumers and hands them to the result stream
+
+        if (pipeline == null && !streamRows)
+            return tasks;
+        if (streamRows)
+            resultStream.begin(rows, cols);
+
+        long rowCost = pipeline == null ? 0 : pipeline.getRowCost();
+        StreamingOutputWriter stream = resultStream;
+        List<Runnable> finishing = new ArrayList<>(tasks.size());
+        for (int t = 0; t < tasks.size(); t++) {
+            Runnable task = tasks.get(t);
+            int from = t * rowsPerTask, to = Math.min(from + rowsPerTask, rows);
+            finishing.add(new TiredTask(() -> {
+                task.run();
+                for (int r = from; r < to; r++) {
+                    if (pipeline != null)
+                        pipelineRow.accept(r);
+                    if (streamRows)
+                        stream.row(r, finishedRow.apply(r));
+                }
+            }, TiredTask.costOf(task) + (to - from) * rowCost, from));
+        }
+
+        return finishing;
+    }
+
+    private double[][] newMatrix(int rows, int cols) {
+        /// zero-filled result matrix, from the buffer pool if there is one
+
+        return bufferPool == null ? new double[rows][cols] : bufferPool.acquireMatrix(rows, cols);
+    }
+
+    private void executeTasks(List<Runnable> tasks) {
+        stepTaskCount += tasks.size();
+        executor.submitAll(tasks);
     }
 
     public List<Runnable> createAddTasks() {
@@ -106,10 +815,18 @@ public class LinearAlgebraEngine {
         if (leftMatrix.length() != rightMatrix.length() || leftMatrix.get(0).length() != rightMatrix.get(0).length())
             throw new IllegalArgumentException("Matrix Length Mismatch");
 
-        List<Runnable> tasks = new ArrayList<>(leftMatrix.length());
-        for (int i = 0; i < leftMatrix.length(); i++) {
-            int finalI = i;
-            tasks.add(() -> leftMatrix.get(finalI).add(rightMatrix.get(finalI)));
+        long cols = leftMatrix.get(0).length();
+        SharedMatrix left = leftMatrix, right = rightMatrix;
+        List<Runnable> tasks = new ArrayList<>(leftMatrix.length() / rowsPerTask + 1);
+        for (int i = 0; i < leftMatrix.length(); i += rowsPerTask) {
+            int from = i, to = Math.min(i + rowsPerTask, leftMatrix.length());
+            if (isSpeculative())
+                tasks.add(speculativeRows(left, from, to, (to - from) * cols, r -> left.get(r).computeAdd(right.get(r))));
+            else
+                tasks.add(new TiredTask(() -> {
+                    for (int r = from; r < to; r++)
+                        leftMatrix.get(r).add(rightMatrix.get(r));
+                }, (to - from) * cols, from));
         }
 
         return tasks;
@@ -125,10 +842,18 @@ public class LinearAlgebraEngine {
         if (leftMatrix.get(0).length() != rightMatrix.get(0).length() )
             throw new IllegalArgumentException("Matrix Length Mismatch");
 
-        List<Runnable> tasks = new ArrayList<>(leftMatrix.length());
-        for (int i = 0; i < leftMatrix.length(); i++) {
-            int finalI = i;
-            tasks.add(() -> leftMatrix.get(finalI).vecMatMul(rightMatrix));
+        long rowFlops = 2L * leftMatrix.get(0).length() * rightMatrix.length();
+        SharedMatrix left = leftMatrix, right = rightMatrix;
+        List<Runnable> tasks = new ArrayList<>(leftMatrix.length() / rowsPerTask + 1);
+        for (int i = 0; i < leftMatrix.length(); i += rowsPerTask) {
+            int from = i, to = Math.min(i + rowsPerTask, leftMatrix.length());
+            if (isSpeculative())
+                tasks.add(speculativeRows(left, from, to, (to - from) * rowFlops, r -> left.get(r).computeVecMatMul(right)));
+            else
+                tasks.add(new TiredTask(() -> {
+                    for (int r = from; r < to; r++)
+                        leftMatrix.get(r).vecMatMul(rightMatrix, bufferPool);
+                }, (to - from) * rowFlops, from));
         }
 
         return tasks;
@@ -137,10 +862,18 @@ public class LinearAlgebraEngine {
     public List<Runnable> createNegateTasks() {
         /// return tasks that negate rows
 
-        List<Runnable> tasks = new ArrayList<>(leftMatrix.length());
-        for (int i = 0; i < leftMatrix.length(); i++) {
-            int finalI = i;
-            tasks.add(() -> leftMatrix.get(finalI).negate());
+        long cols = leftMatrix.length() == 0 ? 0 : leftMatrix.get(0).length();
+        SharedMatrix left = leftMatrix;
+        List<Runnable> tasks = new ArrayList<>(leftMatrix.length() / rowsPerTask + 1);
+        for (int i = 0; i < leftMatrix.length(); i += rowsPerTask) {
+            int from = i, to = Math.min(i + rowsPerTask, leftMatrix.length());
+            if (isSpeculative())
+                tasks.add(speculativeRows(left, from, to, (to - from) * cols, r -> left.get(r).computeNegate()));
+            else
+                tasks.add(new TiredTask(() -> {
+                    for (int r = from; r < to; r++)
+                        leftMatrix.get(r).negate();
+                }, (to - from) * cols, from));
         }
 
         return tasks;
@@ -149,15 +882,187 @@ public class LinearAlgebraEngine {
     public List<Runnable> createTransposeTasks() {
         /// return tasks that transpose rows
 
-        List<Runnable> tasks = new ArrayList<>(leftMatrix.length());
-        for (int i = 0; i < leftMatrix.length(); i++) {
-            int finalI = i;
-            tasks.add(() -> leftMatrix.get(finalI).transpose());
+        List<Runnable> tasks = new ArrayList<>(leftMatrix.length() / rowsPerTask + 1);
+        for (int i = 0; i < leftMatrix.length(); i += rowsPerTask) {
+            int from = i, to = Math.min(i + rowsPerTask, leftMatrix.length());
+            tasks.add(new TiredTask(() -> {
+                for (int r = from; r < to; r++)
+                    leftMatrix.get(r).transpose();
+            }, to - from, from));
+        }
+
+        return tasks;
+    }
+
+    public List<Runnable> createTiledMultiplyTasks(double[][] a, double[][] b, double[][] c) {
+        /// return tasks that each compute a band of rows of c = a × b with the blocked kernel
+
+        long rowFlops = c.length == 0 ? 0 : 2L * b.length * c[0].length;
+        List<Runnable> tasks = new ArrayList<>(a.length / rowsPerTask + 1);
+        for (int i = 0; i < a.length; i += rowsPerTask) {
+            int from = i, to = Math.min(i + rowsPerTask, a.length);
+            if (isSpeculative())
+                tasks.add(speculativeBand(c, from, to, (to - from) * rowFlops,
+                        scratch -> BlockedMultiply.multiplyAdd(a, b, scratch, from, to, BlockedMultiply.DEFAULT_BLOCK)));
+            else
+                tasks.add(new TiredTask(() -> BlockedMultiply.multiplyAdd(a, b, c, from, to, BlockedMultiply.DEFAULT_BLOCK),
+                        (to - from) * rowFlops, from));
+        }
+
+        return tasks;
+    }
+
+    public List<Runnable> createSparseMultiplyTasks(SparseMultiply a, double[][] b, double[][] c) {
+        /// return tasks that each compute a band of rows of c = a × b from the CSR left operand
+
+        // row bands of a skewed sparse operand differ in cost by their non-zero counts
+        long cols = c.length == 0 ? 0 : c[0].length;
+        List<Runnable> tasks = new ArrayList<>(c.length / rowsPerTask + 1);
+        for (int i = 0; i < c.length; i += rowsPerTask) {
+            int from = i, to = Math.min(i + rowsPerTask, c.length);
+            long cost = 2L * a.nonZeros(from, to) * cols;
+            if (isSpeculative())
+                tasks.add(speculativeBand(c, from, to, cost, scratch -> a.multiplyRows(b, scratch, from, to)));
+            else
+                tasks.add(new TiredTask(() -> a.multiplyRows(b, c, from, to), cost, from));
         }
 
         return tasks;
     }
 
+    public List<Runnable> createSymmetricTasks(SymmetricMultiply gram, double[][] g) {
+        /// return tasks that each compute the upper triangle of a band of rows paired with
+        /// the band mirrored from the bottom, so every task costs about the same
+
+        int n = gram.size(), half = (n + 1) / 2;
+        long pairCost = 2L * (n + 1) * gram.inner(); // n + 1 dot products per row pair
+        List<Runnable> tasks = new ArrayList<>(half / rowsPerTask + 1);
+        for (int i = 0; i < half; i += rowsPerTask) {
+            int from = i, to = Math.min(i + rowsPerTask, half);
+            tasks.add(new TiredTask(() -> gram.upperRows(g, from, to), (to - from) * pairCost, from));
+        }
+
+        return tasks;
+    }
+
+    public List<Runnable> createMirrorTasks(SymmetricMultiply gram, double[][] g) {
+        /// return tasks that copy the upper triangle into the lower one, band by band
+
+        List<Runnable> tasks = new ArrayList<>(g.length / rowsPerTask + 1);
+        for (int i = 0; i < g.length; i += rowsPerTask) {
+            int from = i, to = Math.min(i + rowsPerTask, g.length);
+            tasks.add(new TiredTask(() -> gram.mirrorRows(g, from, to), (long) (to - from) * g.length / 2, from));
+        }
+
+        return tasks;
+    }
+
+    private int vectorColumnsPerTask(PlanStep step) {
+        /// 0 to split a GEMV or outer product by rows, otherwise the width of its column blocks:
+        /// a row vector result has a single row, and a short outer product too few to go around
+
+        int m = step.getRows(), n = step.getCols(), threads = planner.getNumThreads();
+        boolean byRows = step.getCols() == 1 || (step.getKernel() == KernelVariant.OUTER
+                && m >= (long) threads * Planner.TASKS_PER_THREAD);
+        if (byRows || m == 0)
+            return 0;
+
+        return planner.granularity(n, 2L * m * step.getInner());
+    }
+
+    public List<Runnable> createVectorRowTasks(VectorMultiply v, double[][] c) {
+        /// return tasks that each compute a band of output rows
+
+        long rowFlops = c.length == 0 ? 0 : 2L * v.inner() * c[0].length;
+        List<Runnable> tasks = new ArrayList<>(c.length / rowsPerTask + 1);
+        for (int i = 0; i < c.length; i += rowsPerTask) {
+            int from = i, to = Math.min(i + rowsPerTask, c.length);
+            tasks.add(new TiredTask(() -> v.multiplyRows(c, from, to), (to - from) * rowFlops, from));
+        }
+
+        return tasks;
+    }
+
+    public List<Runnable> createVectorColumnTasks(VectorMultiply v, double[][] c, int columnsPerTask) {
+        /// return tasks that each compute a block of output columns across all rows
+
+        int cols = c.length == 0 ? 0 : c[0].length;
+        List<Runnable> tasks = new ArrayList<>(cols / columnsPerTask + 1);
+        for (int j = 0; j < cols; j += columnsPerTask) {
+            int from = j, to = Math.min(j + columnsPerTask, cols);
+            // every row is touched, so there is no row to keep affinity with
+            tasks.add(new TiredTask(() -> v.multiplyColumns(c, from, to), 2L * (to - from) * c.length * v.inner()));
+        }
+
+        return tasks;
+    }
+
+    private List<Runnable> rowBands(int rows) {
+        /// empty tasks over the row bands, for finishingRows after a column-split kernel
+
+        List<Runnable> tasks = new ArrayList<>(rows / rowsPerTask + 1);
+        for (int i = 0; i < rows; i += rowsPerTask)
+            tasks.add(new TiredTask(() -> {}, 0, i));
+        return tasks;
+    }
+
+    List<Runnable> createStructuredTasks(StructuredKernel kernel, double[][] c, int inner) {
+        /// row bands of a structured MULTIPLY or ADD, each writing its own rows of c
+
+        long rowCost = c.length == 0 ? 0 : c[0].length + inner;
+        List<Runnable> tasks = new ArrayList<>(c.length / rowsPerTask + 1);
+        for (int i = 0; i < c.length; i += rowsPerTask) {
+            int from = i, to = Math.min(i + rowsPerTask, c.length);
+            if (isSpeculative())
+                tasks.add(speculativeBand(c, from, to, (to - from) * rowCost, scratch -> kernel.computeRows(scratch, from, to)));
+            else
+                tasks.add(new TiredTask(() -> kernel.computeRows(c, from, to), (to - from) * rowCost, from));
+        }
+
+        return tasks;
+    }
+
+    private boolean recycling() {
+        /// whether consumed buffers go back to the pool; not when speculating, since losing
+        /// attempts may still be reading them after their step has returned
+
+        return bufferPool != null && !isSpeculative();
+    }
+
+    private boolean isSpeculative() {
+        return executor.getSpeculation() > 0;
+    }
+
+    private static Runnable speculativeRows(SharedMatrix target, int from, int to, long cost, IntFunction<double[]> computeRow) {
+        /// task computing rows [from, to) of target into new arrays, swapped in on commit
+
+        return new SpeculativeTask<double[][]>(() -> {
+            double[][] rows = new double[to - from][];
+            for (int r = from; r < to; r++)
+                rows[r - from] = computeRow.apply(r);
+            return rows;
+        }, rows -> {
+            for (int r = from; r < to; r++)
+                target.get(r).replace(rows[r - from]);
+        }, cost, from);
+    }
+
+    private static Runnable speculativeBand(double[][] c, int from, int to, long cost, Consumer<double[][]> computeInto) {
+        /// task accumulating rows [from, to) of c into zeroed scratch rows (same indices),
+        /// which replace the rows of c on commit
+
+        return new SpeculativeTask<double[][]>(() -> {
+            double[][] scratch = new double[c.length][];
+            for (int r = from; r < to; r++)
+                scratch[r] = new double[c[r].length];
+            computeInto.accept(scratch);
+            return scratch;
+        }, scratch -> {
+            for (int r = from; r < to; r++)
+                c[r] = scratch[r];
+        }, cost, from);
+    }
+
     public String getWorkerReport() {
         /// return summary of worker activity
 
@@ -1,25 +1,223 @@
 package spl.lae;
+import java.io.File;
 import java.io.IOException;
-import java.text.ParseException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 
+import memory.BufferPool;
+import memory.TiledMatrix;
 import parser.*;
+import scheduling.SchedulingPolicy;
 
 public class Main {
+
+    /**
+     * Command-line flags, shared by every job of a batch.
+     */
+    private static final class Options {
+        final List<String> positional = new ArrayList<>();
+        KernelVariant kernel = null;
+        int strassenCutoff = StrassenMultiply.DEFAULT_CUTOFF;
+        boolean explain = false;
+        boolean lockStats = false;
+        boolean affinity = false;
+        int maxThreads = -1;
+        long idleTimeoutMs = 60_000;
+        boolean spinHandoff = false;
+        boolean pipeline = false;
+        boolean stream = false;
+        boolean outOfCore = false;
+        long memoryBytes = 256L << 20;
+        long heapBudgetBytes = 0;
+        Path tempDir = Paths.get(System.getProperty("java.io.tmpdir"));
+        long cacheBytes = 0;
+        long poolBytes = 0;
+        String metricsPath = null;
+        String policy = "fatigue-min";
+        double speculation = 0;
+        int threads;
+    }
+
     public static void main(String[] args) throws  IOException {
         // main
-        int threads = Integer.parseInt(args[0]);
-        String inputFilePath = args[1];
-        String outputFilePath = args[2];
+        // usage: <threads> <input> <output> [<input> <output> ...] [--kernel=naive|tiled|strassen|sparse]
+        //        [--strassen-cutoff=N] [--explain] [--cache-mb=N] [--pool-mb=N]
+        //        [--metrics=metrics.json] [--lock-stats]   (batch jobs write metrics-0.json, ...)
+        //        [--policy=fatigue-min|round-robin|least-loaded|cache-affinity]
+        //        [--speculate=slowdown-factor] [--affinity]
+        //        [--max-threads=N] [--idle-timeout-ms=T]   (elastic pool, <threads> is the minimum)
+        //        [--spin-handoff] [--pipeline] [--stream]
+        //        [--out-of-core] [--memory-mb=N] [--temp-dir=DIR]   (disk-backed tiles, MULTIPLY/ADD/NEGATE)
+        //        [--heap-budget-mb=N]   (per run; with several input/output pairs the jobs run
+        //                                concurrently, admitted by estimated peak memory)
+        Options options = new Options();
+
+        for (String arg : args) {
+            if (arg.startsWith("--kernel="))
+                options.kernel = KernelVariant.valueOf(arg.substring("--kernel=".length()).toUpperCase());
+            else if (arg.startsWith("--strassen-cutoff="))
+                options.strassenCutoff = Integer.parseInt(arg.substring("--strassen-cutoff=".length()));
+            else if (arg.startsWith("--cache-mb="))
+                options.cacheBytes = Long.parseLong(arg.substring("--cache-mb=".length())) << 20;
+            else if (arg.startsWith("--pool-mb="))
+                options.poolBytes = Long.parseLong(arg.substring("--pool-mb=".length())) << 20;
+            else if (arg.startsWith("--speculate="))
+                options.speculation = Double.parseDouble(arg.substring("--speculate=".length()));
+            else if (arg.startsWith("--policy="))
+                options.policy = arg.substring("--policy=".length());
+            else if (arg.startsWith("--metrics="))
+                options.metricsPath = arg.substring("--metrics=".length());
+            else if (arg.equals("--explain"))
+                options.explain = true;
+            else if (arg.equals("--lock-stats"))
+                options.lockStats = true;
+            else if (arg.startsWith("--max-threads="))
+                options.maxThreads = Integer.parseInt(arg.substring("--max-threads=".length()));
+            else if (arg.startsWith("--idle-timeout-ms="))
+                options.idleTimeoutMs = Long.parseLong(arg.substring("--idle-timeout-ms=".length()));
+            else if (arg.equals("--spin-handoff"))
+                options.spinHandoff = true;
+            else if (arg.equals("--out-of-core"))
+                options.outOfCore = true;
+            else if (arg.startsWith("--memory-mb="))
+                options.memoryBytes = Long.parseLong(arg.substring("--memory-mb=".length())) << 20;
+            else if (arg.startsWith("--heap-budget-mb="))
+                options.heapBudgetBytes = Long.parseLong(arg.substring("--heap-budget-mb=".length())) << 20;
+            else if (arg.startsWith("--temp-dir="))
+                options.tempDir = Paths.get(arg.substring("--temp-dir=".length()));
+            else if (arg.equals("--stream"))
+                options.stream = true;
+            else if (arg.equals("--pipeline"))
+                options.pipeline = true;
+            else if (arg.equals("--affinity"))
+                options.affinity = true;
+            else
+                options.positional.add(arg);
+        }
+
+        options.threads = Integer.parseInt(options.positional.get(0));
+        List<String> files = options.positional.subList(1, options.positional.size());
+        if (files.isEmpty() || files.size() % 2 != 0)
+            throw new IllegalArgumentException("Expected input and output files in pairs: " + files);
+        // one cache for every job, so expressions sharing operands reuse each other's results
+        ResultCache cache = options.cacheBytes > 0 ? new ResultCache(options.cacheBytes) : null;
+
+        if (files.size() == 2) {
+            if (!runJob(options, files.get(0), files.get(1), cache, null, options.metricsPath))
+                System.exit(1);
+            return;
+        }
+
+        // batch: every job gets its own engine; together they stay within the heap budget
+        // (80% of the max heap unless given), each waiting for room before it parses its input
+        long capacity = options.heapBudgetBytes > 0 ? options.heapBudgetBytes : Runtime.getRuntime().maxMemory() / 5 * 4;
+        AdmissionController admission = new AdmissionController(capacity);
+        List<Thread> jobs = new ArrayList<>();
+        boolean[] succeeded = new boolean[files.size() / 2];
+        for (int i = 0; i + 1 < files.size(); i += 2) {
+            int job = i / 2;
+            String input = files.get(i), output = files.get(i + 1);
+            String metricsPath = options.metricsPath == null ? null : jobMetricsPath(options.metricsPath, job);
+            Thread thread = new Thread(() -> {
+                try {
+                    succeeded[job] = runJob(options, input, output, cache, admission, metricsPath);
+                } catch (IOException e) {
+                    System.err.println(input + ": " + e.getMessage());
+                }
+            }, "job-" + job);
+            thread.start();
+            jobs.add(thread);
+        }
 
+        boolean failed = false;
+        for (int job = 0; job < jobs.size(); job++) {
+            try {
+                jobs.get(job).join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            failed |= !succeeded[job];
+        }
+        if (failed)
+            System.exit(1);
+    }
+
+    private static String jobMetricsPath(String metricsPath, int job) {
+        /// metrics file of one batch job: metrics.json becomes metrics-0.json, metrics-1.json, ...
+
+        int dot = metricsPath.lastIndexOf('.');
+        if (dot <= Math.max(metricsPath.lastIndexOf('/'), metricsPath.lastIndexOf('\\')))
+            return metricsPath + "-" + job;
+        return metricsPath.substring(0, dot) + "-" + job + metricsPath.substring(dot);
+    }
+
+    private static boolean runJob(Options options, String inputFilePath, String outputFilePath, ResultCache cache,
+                                  AdmissionController admission, String metricsPath) throws IOException {
+        /// run one input file to one output file; on failure the error goes to the output file.
+        /// With an admission controller nothing is built or parsed before a provisional
+        /// reservation from the input size is admitted; the engine then takes it over
+
+        StreamingOutputWriter resultStream = options.stream ? new StreamingOutputWriter(outputFilePath) : null;
+        long reserved = -1;
         try {
-            LinearAlgebraEngine LAE = new LinearAlgebraEngine(threads);
+            if (admission != null) {
+                long provisional = Math.min(MemoryEstimator.inputBytes(new File(inputFilePath).length()),
+                        admission.getCapacity());
+                admission.acquire(provisional);
+                reserved = provisional;
+            }
+            int threads = options.threads;
+            LinearAlgebraEngine LAE = options.maxThreads > threads || options.spinHandoff
+                    ? new LinearAlgebraEngine(threads, Math.max(threads, options.maxThreads), options.idleTimeoutMs,
+                            SchedulingPolicy.forName(options.policy), options.spinHandoff)
+                    : new LinearAlgebraEngine(threads, SchedulingPolicy.forName(options.policy));
+            LAE.setMultiplyKernel(options.kernel);
+            LAE.setStrassenCutoff(options.strassenCutoff);
+            LAE.setExplain(options.explain);
+            LAE.setLockProfiling(options.lockStats);
+            LAE.setSpeculation(options.speculation);
+            LAE.setAffinity(options.affinity);
+            LAE.setPipelining(options.pipeline);
+            LAE.setResultStream(resultStream);
+            LAE.setHeapBudget(options.heapBudgetBytes);
+            LAE.setResultCache(cache);
+            if (options.poolBytes > 0)
+                LAE.setBufferPool(new BufferPool(options.poolBytes));
             InputParser IP = new InputParser();
+            if (options.outOfCore) {
+                LAE.setMemoryBudget(options.memoryBytes);
+                LAE.setSpillDirectory(options.tempDir);
+                IP.setSpillDirectory(options.tempDir);
+                try (TiledMatrix result = LAE.runOutOfCore(IP.parse(inputFilePath))) {
+                    OutputWriter.write(result, outputFilePath);
+                }
+                if (metricsPath != null)
+                    LAE.getMetrics().writeJson(metricsPath);
+                return true;
+            }
             ComputationNode computationNode = IP.parse(inputFilePath);
+            if (admission != null) {
+                LAE.setAdmissionController(admission, reserved);
+                reserved = -1; // the engine releases it from here on
+            }
             ComputationNode Root = LAE.run(computationNode);
-            OutputWriter.write(Root.getMatrix(), outputFilePath);
+            if (resultStream != null)
+                resultStream.finish(Root.getMatrix());
+            else
+                OutputWriter.write(Root.getMatrix(), outputFilePath);
+            if (metricsPath != null)
+                LAE.getMetrics().writeJson(metricsPath);
+            return true;
         } catch (Exception e){
+            if (resultStream != null)
+                resultStream.abort();
             OutputWriter.write(e.getMessage(),outputFilePath);
-            System.exit(1);
+            return false;
+        } finally {
+            if (reserved >= 0)
+                admission.release(reserved);
         }
     }
 }
@@ -0,0 +1,201 @@
+package spl.lae;
+
+import parser.ComputationNode;
+import parser.ComputationNodeType;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Peak heap estimate of a {@link Plan}, run before any task is submitted.
+ * Every input matrix counts as live from the start until the step consuming it finishes;
+ * each step adds what its kernel allocates while it runs (the result, the column-major
+ * reload of a naive MULTIPLY's right operand, the row-major copy out of a SharedMatrix,
+ * Strassen's padded blocks, ...). Also finds the evaluation order with the lowest estimate.
+ */
+public final class MemoryEstimator {
+
+    private static final long ARRAY_HEADER = 16;
+    private static final long REFERENCE = 4;
+
+    private MemoryEstimator() {}
+
+    public static long matrixBytes(long rows, long cols) {
+        /// heap footprint of a rows × cols double[][] (row arrays and the outer array)
+
+        return ARRAY_HEADER + rows * REFERENCE + rows * (ARRAY_HEADER + cols * Double.BYTES);
+    }
+
+    public static long inputBytes(long fileBytes) {
+        /// upper bound on the heap the matrices of a JSON input of fileBytes take once parsed:
+        /// the shortest element ("1,") is 2 characters for 8 bytes
+
+        return fileBytes * (Double.BYTES / 2);
+    }
+
+    public static long estimatePeak(Plan plan) {
+        /// peak live bytes when the steps run in plan order
+
+        Map<ComputationNode, Long> results = new IdentityHashMap<>();
+        long live = inputBytes(plan);
+        long peak = live;
+
+        for (PlanStep step : plan.getSteps()) {
+            peak = Math.max(peak, live + stepBytes(step));
+            long result = resultBytes(step);
+            results.put(step.getNode(), result);
+            live += result - operandBytes(step, results);
+        }
+
+        return peak;
+    }
+
+    public static Plan lowMemoryOrder(Plan plan) {
+        /// same steps, with the operator operands of every node evaluated in the order that
+        /// minimizes its subtree's peak (Sethi-Ullman: the operand needing more headroom
+        /// beyond what its result keeps live goes first)
+
+        List<PlanStep> steps = plan.getSteps();
+        Map<ComputationNode, PlanStep> byNode = new IdentityHashMap<>();
+        Map<ComputationNode, long[]> cost = new IdentityHashMap<>(); // {peak, net live change} relative to start
+        Map<ComputationNode, List<ComputationNode>> order = new IdentityHashMap<>();
+
+        for (PlanStep step : steps) {
+            byNode.put(step.getNode(), step);
+
+            List<ComputationNode> operators = new ArrayList<>();
+            long leaves = 0;
+            for (ComputationNode child : step.getNode().getChildren())
+                if (child.getNodeType() == ComputationNodeType.MATRIX)
+                    leaves += leafBytes(child);
+                else
+                    operators.add(child);
+
+            if (operators.size() == 2) {
+                long[] first = cost.get(operators.get(0)), second = cost.get(operators.get(1));
+                long inOrder = Math.max(first[0], first[1] + second[0]);
+                long swapped = Math.max(second[0], second[1] + first[0]);
+                if (swapped < inOrder)
+                    operators = List.of(operators.get(1), operators.get(0));
+            }
+
+            long running = 0, peak = 0, consumed = leaves;
+            for (ComputationNode operand : operators) {
+                long[] c = cost.get(operand);
+                peak = Math.max(peak, running + c[0]);
+                running += c[1];
+                consumed += resultBytes(byNode.get(operand));
+            }
+            peak = Math.max(peak, running + stepBytes(step));
+            long net = running - consumed + resultBytes(step);
+
+            cost.put(step.getNode(), new long[]{peak, net});
+            order.put(step.getNode(), operators);
+        }
+
+        Plan reordered = new Plan();
+        if (steps.isEmpty())
+            return reordered;
+
+        // post-order from the root, operands in the chosen order
+        Deque<ComputationNode> stack = new ArrayDeque<>();
+        Deque<Boolean> expanded = new ArrayDeque<>();
+        stack.push(steps.get(steps.size() - 1).getNode());
+        expanded.push(false);
+        while (!stack.isEmpty()) {
+            ComputationNode node = stack.pop();
+            if (expanded.pop()) {
+                reordered.add(byNode.get(node));
+                continue;
+            }
+
+            stack.push(node);
+            expanded.push(true);
+            List<ComputationNode> operands = order.get(node);
+            for (int i = operands.size() - 1; i >= 0; i--) {
+                stack.push(operands.get(i));
+                expanded.push(false);
+            }
+        }
+
+        return reordered;
+    }
+
+    static long stepBytes(PlanStep step) {
+        /// bytes a step allocates while it runs, its result included
+
+        long m = step.getRows(), n = step.getCols(), k = step.getInner();
+        long result = matrixBytes(m, n);
+        if (step.isElided())
+            return 0;
+
+        if (step.getType() == ComputationNodeType.POWER) {
+            // the accumulated product, the squared base and the spare buffer the next multiply writes into
+            long buffers = 3 * result;
+            if (step.getKernel() != KernelVariant.STRASSEN)
+                return buffers;
+            long padded = StrassenMultiply.paddedSize((int) m, step.getStrassenCutoff());
+            return buffers + 6 * matrixBytes(padded, padded);
+        }
+        if (step.getType() != ComputationNodeType.MULTIPLY)
+            return result; // row-major copy out of the SharedMatrix (operands are updated in place)
+
+        switch (step.getKernel()) {
+            case STRASSEN: {
+                long padded = StrassenMultiply.paddedSize((int) m, step.getStrassenCutoff());
+                // quadrant copies, the seven products and the sum temporaries of the top level
+                return result + 6 * matrixBytes(padded, padded);
+            }
+            case SPARSE: {
+                // CSR copy of the left operand, at most SPARSE_MAX_DENSITY full (unless forced)
+                long nonZeros = (long) Math.ceil(Planner.SPARSE_MAX_DENSITY * m * k);
+                return result + nonZeros * (Double.BYTES + Integer.BYTES) + (m + 1) * Integer.BYTES;
+            }
+            case TILED:
+            case STRUCTURED:
+            case GEMV:
+            case OUTER:
+                return result;
+            case SYRK: {
+                // T(A) * A first copies A transposed
+                ComputationNode first = step.getNode().getChildren().get(0);
+                return first.getNodeType() == ComputationNodeType.TRANSPOSE ? result + matrixBytes(m, k) : result;
+            }
+            default:
+                // column-major reload of the right operand, new row arrays, then the row-major copy
+                return matrixBytes(n, k) + 2 * result;
+        }
+    }
+
+    private static long resultBytes(PlanStep step) {
+        /// what a step's result keeps live; an elided TRANSPOSE just keeps its leaf
+
+        return step.isElided() ? leafBytes(step.getNode().getChildren().get(0))
+                : matrixBytes(step.getRows(), step.getCols());
+    }
+
+    private static long inputBytes(Plan plan) {
+        long bytes = 0;
+        for (PlanStep step : plan.getSteps())
+            for (ComputationNode child : step.getNode().getChildren())
+                if (child.getNodeType() == ComputationNodeType.MATRIX)
+                    bytes += leafBytes(child);
+        return bytes;
+    }
+
+    private static long operandBytes(PlanStep step, Map<ComputationNode, Long> results) {
+        long bytes = 0;
+        for (ComputationNode child : step.getNode().getChildren())
+            bytes += child.getNodeType() == ComputationNodeType.MATRIX ? leafBytes(child) : results.get(child);
+        return bytes;
+    }
+
+    private static long leafBytes(ComputationNode leaf) {
+        double[][] m = leaf.getMatrix();
+        return matrixBytes(m.length, m.length == 0 ? 0 : m[0].length);
+    }
+}
@@ -0,0 +1,43 @@
+package spl.lae;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event spanning the evaluation of one operator node in
+ * {@link LinearAlgebraEngine#loadAndCompute}, with its planned shape and kernel.
+ */
+@Name("lae.Operator")
+@Label("Operator")
+@Category({"Linear Algebra Engine", "Engine"})
+@Description("Evaluation of one operator node")
+@StackTrace(false)
+final class OperatorEvent extends Event {
+
+    @Label("Operator")
+    String operator;
+
+    @Label("Kernel")
+    String kernel;
+
+    @Label("Rows")
+    int rows;
+
+    @Label("Columns")
+    int cols;
+
+    @Label("Inner Dimension")
+    @Description("Shared dimension of a MULTIPLY, 0 for other operators")
+    int inner;
+
+    @Label("Tasks")
+    int tasks;
+
+    @Label("Cached")
+    @Description("Result was served from the result cache")
+    boolean cached;
+}
@@ -0,0 +1,263 @@
+package spl.lae;
+
+import memory.TiledMatrix;
+import parser.ComputationNode;
+import parser.ComputationNodeType;
+import scheduling.TiredExecutor;
+import scheduling.TiredTask;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.DoubleBuffer;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluates a tree whose operands live in {@link TiledMatrix} files, for products that
+ * don't fit in the heap. Every operator writes its result to a new temp file, one task
+ * per row band; band heights are chosen so that the bands all workers touch at once stay
+ * within the memory budget. Operand files are deleted as soon as they are consumed.
+ * Supports MULTIPLY, ADD and NEGATE.
+ */
+class OutOfCoreEvaluator {
+
+    private static final int DOUBLE_BYTES = Double.BYTES;
+
+    private final TiredExecutor executor;
+    private final int numThreads;
+    private final long taskBudget; // bytes one task may keep resident
+    private final Path directory;
+    private final EngineMetrics metrics;
+
+    OutOfCoreEvaluator(TiredExecutor executor, int numThreads, long memoryBudget, Path directory, EngineMetrics metrics) {
+        this.executor = executor;
+        this.numThreads = Math.max(1, numThreads);
+        this.taskBudget = Math.max(1, memoryBudget / this.numThreads);
+        this.directory = directory;
+        this.metrics = metrics;
+    }
+
+    TiledMatrix evaluate(ComputationNode root) throws IOException {
+        /// check every shape first (nothing is written for a mismatched tree), then
+        /// resolve the operators bottom-up
+
+        List<ComputationNode> order = operatorsInOrder(root);
+        checkShapes(order);
+
+        for (ComputationNode node : order) {
+            List<ComputationNode> children = node.getChildren();
+            TiledMatrix a = tiled(children.get(0));
+            TiledMatrix b = children.size() > 1 ? tiled(children.get(1)) : null;
+
+            String label = node.getNodeType() + " (OUT-OF-CORE)";
+            System.out.println(label);
+            long start = System.nanoTime();
+            List<Runnable> tasks = new ArrayList<>();
+            TiledMatrix c;
+            switch (node.getNodeType()) {
+                case MULTIPLY:
+                    c = TiledMatrix.create(directory, a.getRows(), b.getCols());
+                    multiplyTasks(a, b, c, tasks);
+                    break;
+                case ADD:
+                case NEGATE:
+                    c = TiledMatrix.create(directory, a.getRows(), a.getCols());
+                    elementWiseTasks(a, b, c, tasks);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unidentified Operator : " + node.getNodeType());
+            }
+
+            executor.submitAll(tasks);
+            a.close();
+            if (b != null)
+                b.close();
+            node.resolve(c);
+            metrics.recordStep(label, System.nanoTime() - start, tasks.size(), 0);
+        }
+
+        return tiled(root);
+    }
+
+    private TiledMatrix tiled(ComputationNode node) throws IOException {
+        /// a leaf's disk-backed matrix, spilling in-heap leaves on first use
+
+        if (!node.isTiled())
+            node.resolve(TiledMatrix.of(node.getMatrix(), directory));
+        return node.getTiledMatrix();
+    }
+
+    private List<ComputationNode> operatorsInOrder(ComputationNode root) {
+        /// operator nodes in post-order, nesting n-ary operators on the way (no recursion)
+
+        List<ComputationNode> order = new ArrayList<>();
+        Deque<ComputationNode> stack = new ArrayDeque<>();
+        Deque<Boolean> expanded = new ArrayDeque<>();
+        stack.push(root);
+        expanded.push(false);
+
+        while (!stack.isEmpty()) {
+            ComputationNode node = stack.pop();
+            boolean done = expanded.pop();
+            if (node.getNodeType() == ComputationNodeType.MATRIX)
+                continue;
+            if (done) {
+                order.add(node);
+                continue;
+            }
+
+            int operands = node.getChildren() == null ? 0 : node.getChildren().size();
+            switch (node.getNodeType()) {
+                case NEGATE:
+                    if (operands != 1)
+                        throw new IllegalArgumentException(operands == 0 ? "Operator Receive No Operands."
+                                : "Unary Operator Receive More Than Single Operand.");
+                    break;
+                case ADD:
+                case MULTIPLY:
+                    if (operands < 2)
+                        throw new IllegalArgumentException("Binary Operator Receive Less Than Two Operands.");
+                    break;
+                default:
+                    throw new IllegalArgumentException("Out-of-core mode does not support " + node.getNodeType());
+            }
+
+            node.associativeNesting();
+            stack.push(node);
+            expanded.push(true);
+            for (int i = node.getChildren().size() - 1; i >= 0; i--) {
+                stack.push(node.getChildren().get(i));
+                expanded.push(false);
+            }
+        }
+
+        return order;
+    }
+
+    private void checkShapes(List<ComputationNode> order) throws IOException {
+        Map<ComputationNode, int[]> shapes = new IdentityHashMap<>();
+        for (ComputationNode node : order) {
+            int[] left = shapeOf(node.getChildren().get(0), shapes);
+            int[] shape = left;
+            if (node.getNodeType() != ComputationNodeType.NEGATE) {
+                int[] right = shapeOf(node.getChildren().get(1), shapes);
+                boolean multiply = node.getNodeType() == ComputationNodeType.MULTIPLY;
+                if (multiply ? left[1] != right[0] : left[0] != right[0] || left[1] != right[1])
+                    throw new IllegalArgumentException("Matrix Length Mismatch");
+                shape = multiply ? new int[]{left[0], right[1]} : left;
+            }
+
+            // the smallest task: one row of a and of b, the accumulator and the row of c for a
+            // product, one row of each band plus the heap copy for ADD/NEGATE
+            long minTaskBytes = (node.getNodeType() == ComputationNodeType.MULTIPLY
+                    ? (long) left[1] + 3L * shape[1] : 4L * shape[1]) * DOUBLE_BYTES;
+            if (minTaskBytes > taskBudget)
+                throw new IllegalArgumentException("Memory budget too small for " + node.getNodeType() + " of "
+                        + shape[0] + "x" + shape[1] + ": one row needs " + minTaskBytes
+                        + " bytes per task, the budget allows " + taskBudget);
+            shapes.put(node, shape);
+        }
+    }
+
+    private static int[] shapeOf(ComputationNode node, Map<ComputationNode, int[]> shapes) {
+        int[] shape = shapes.get(node);
+        if (shape != null)
+            return shape;
+        if (node.isTiled())
+            return new int[]{node.getTiledMatrix().getRows(), node.getTiledMatrix().getCols()};
+
+        double[][] m = node.getMatrix();
+        return new int[]{m.length, m.length == 0 ? 0 : m[0].length};
+    }
+
+    private int bandRows(int rows, long bytesPerRow, long budget) {
+        /// rows per band: as many as budget allows, but at least one band per worker
+
+        long byBudget = Math.max(0, budget) / Math.max(1, bytesPerRow);
+        long byBalance = (rows + numThreads - 1) / numThreads;
+        long byMapping = TiledMatrix.MAX_MAPPED_BYTES / Math.max(1, bytesPerRow);
+        return (int) Math.max(1, Math.min(Math.min(byBudget, byBalance), byMapping));
+    }
+
+    private void multiplyTasks(TiledMatrix a, TiledMatrix b, TiledMatrix c, List<Runnable> tasks) {
+        /// c = a × b: each task maps a band of a and streams b through in bands of kRows rows,
+        /// accumulating its band of c in the heap before writing it out once
+
+        int m = a.getRows(), k = a.getCols(), n = b.getCols();
+        // up to a third of the budget for the band of b, but never so much that one row is left
+        // without room; the rest covers, per row, the band of a, the accumulator in the heap and
+        // the band of c it is written to (checkShapes made sure one row of each fits)
+        long rowBytes = (long) (k + 2 * n) * DOUBLE_BYTES, bRowBytes = Math.max(1, (long) n * DOUBLE_BYTES);
+        int kRows = (int) Math.max(1, Math.min(k, Math.min(taskBudget / 3, taskBudget - rowBytes) / bRowBytes));
+        int rows = bandRows(m, rowBytes, taskBudget - kRows * bRowBytes);
+
+        for (int i = 0; i < m; i += rows) {
+            int from = i, to = Math.min(i + rows, m);
+            tasks.add(new TiredTask(() -> {
+                try {
+                    DoubleBuffer band = a.mapRows(from, to, false);
+                    double[] acc = new double[(to - from) * n];
+                    double[] aRow = new double[k];
+                    double[] bRow = new double[n];
+                    long bBandBytes = 0;
+                    for (int k0 = 0; k0 < k; k0 += kRows) {
+                        int k1 = Math.min(k0 + kRows, k);
+                        DoubleBuffer bBand = b.mapRows(k0, k1, false);
+                        bBandBytes = Math.max(bBandBytes, (long) bBand.capacity() * DOUBLE_BYTES);
+                        for (int r = 0; r < to - from; r++) {
+                            band.get(r * k, aRow);
+                            int base = r * n;
+                            for (int kk = k0; kk < k1; kk++) {
+                                double aik = aRow[kk];
+                                bBand.get((kk - k0) * n, bRow);
+                                for (int j = 0; j < n; j++)
+                                    acc[base + j] += aik * bRow[j];
+                            }
+                        }
+                    }
+                    DoubleBuffer out = c.mapRows(from, to, true);
+                    metrics.recordTaskResidentBytes(
+                            (long) (band.capacity() + acc.length + out.capacity()) * DOUBLE_BYTES + bBandBytes);
+                    out.put(acc);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, 2L * (to - from) * k * n, from));
+        }
+    }
+
+    private void elementWiseTasks(TiledMatrix a, TiledMatrix b, TiledMatrix c, List<Runnable> tasks) {
+        /// c = a + b, or c = -a when b is null, band by band
+
+        int m = a.getRows(), n = a.getCols();
+        // per row: the bands of a, b and c plus the values copied out to the heap
+        int rows = bandRows(m, 4L * n * DOUBLE_BYTES, taskBudget);
+
+        for (int i = 0; i < m; i += rows) {
+            int from = i, to = Math.min(i + rows, m);
+            tasks.add(new TiredTask(() -> {
+                try {
+                    double[] values = new double[(to - from) * n];
+                    a.mapRows(from, to, false).get(values);
+                    if (b == null)
+                        for (int j = 0; j < values.length; j++)
+                            values[j] *= -1;
+                    else {
+                        DoubleBuffer other = b.mapRows(from, to, false);
+                        for (int j = 0; j < values.length; j++)
+                            values[j] += other.get(j);
+                    }
+                    metrics.recordTaskResidentBytes((long) (b == null ? 3 : 4) * values.length * DOUBLE_BYTES);
+                    c.mapRows(from, to, true).put(values);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, (long) (to - from) * n, from));
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package spl.lae;
+
+import parser.ComputationNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Output of the {@link Planner}: one {@link PlanStep} per operator node, in the order
+ * the engine resolves them (leftmost-deepest first).
+ */
+public class Plan {
+
+    private final List<PlanStep> steps = new ArrayList<>();
+    private final Map<ComputationNode, PlanStep> byNode = new IdentityHashMap<>();
+
+    void add(PlanStep step) {
+        steps.add(step);
+        byNode.put(step.getNode(), step);
+    }
+
+    void replace(PlanStep step, PlanStep replacement) {
+        /// swap in a replanned step for the same node, keeping its position
+
+        steps.set(steps.indexOf(step), replacement);
+        byNode.put(replacement.getNode(), replacement);
+    }
+
+    public List<PlanStep> getSteps() {
+        return Collections.unmodifiableList(steps);
+    }
+
+    public PlanStep stepFor(ComputationNode node) {
+        /// return the step planned for this operator node
+
+        PlanStep step = byNode.get(node);
+        if (step == null)
+            throw new IllegalStateException("Node was not planned: " + node.getNodeType());
+
+        return step;
+    }
+
+    public int[] parentIndices() {
+        /// index of the step consuming each step's result, -1 for the root;
+        /// only valid while the planned nodes are still unresolved
+
+        Map<ComputationNode, Integer> index = new IdentityHashMap<>();
+        for (int i = 0; i < steps.size(); i++)
+            index.put(steps.get(i).getNode(), i);
+
+        int[] parent = new int[steps.size()];
+        Arrays.fill(parent, -1);
+        for (int i = 0; i < steps.size(); i++)
+            for (ComputationNode child : steps.get(i).getNode().getChildren()) {
+                Integer c = index.get(child);
+                if (c != null)
+                    parent[c] = i;
+            }
+
+        return parent;
+    }
+
+    public Map<ComputationNode, PlanStep> consumers() {
+        /// the step consuming each planned node's result (the root maps to nothing);
+        /// only valid while the planned nodes are still unresolved
+
+        int[] parent = parentIndices();
+        Map<ComputationNode, PlanStep> consumers = new IdentityHashMap<>();
+        for (int i = 0; i < steps.size(); i++)
+            if (parent[i] >= 0)
+                consumers.put(steps.get(i).getNode(), steps.get(parent[i]));
+
+        return consumers;
+    }
+
+    public long getEstimatedFlops() {
+        long sum = 0;
+        for (PlanStep step : steps)
+            sum += step.getEstimatedFlops();
+        return sum;
+    }
+
+    public long getEstimatedBytes() {
+        long sum = 0;
+        for (PlanStep step : steps)
+            sum += step.getEstimatedBytes();
+        return sum;
+    }
+
+    public String explain() {
+        /// return a readable table of the plan, with actual timings for steps that already ran
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Plan: %d steps, est. %s FLOP, est. %s moved%n",
+                steps.size(), human(getEstimatedFlops(), 1000, ""), human(getEstimatedBytes(), 1024, "B")));
+        sb.append(String.format("%4s  %-9s  %-15s  %-8s  %9s  %11s  %11s  %7s  %10s%n",
+                "#", "op", "shape", "kernel", "rows/task", "est.flops", "est.bytes", "tasks", "actual"));
+
+        long actualTotal = 0;
+        for (int i = 0; i < steps.size(); i++) {
+            PlanStep step = steps.get(i);
+            String shape = step.getInner() > 0
+                    ? step.getRows() + "x" + step.getInner() + "x" + step.getCols()
+                    : step.getRows() + "x" + step.getCols();
+            String actual = step.getActualNanos() < 0 ? "-" : String.format("%.3f ms", step.getActualNanos() / 1e6);
+            String tasks = step.getActualTasks() < 0 ? "-" : String.valueOf(step.getActualTasks());
+            String granularity = step.getRowsPerTask() > 0 ? String.valueOf(step.getRowsPerTask()) : "-";
+
+            sb.append(String.format("%4d  %-9s  %-15s  %-8s  %9s  %11s  %11s  %7s  %10s%n",
+                    i + 1, step.getType(), shape, step.getKernel(), granularity,
+                    human(step.getEstimatedFlops(), 1000, ""), human(step.getEstimatedBytes(), 1024, "B"),
+                    tasks, actual));
+
+            if (step.getActualNanos() > 0)
+                actualTotal += step.getActualNanos();
+        }
+
+        if (actualTotal > 0)
+            sb.append(String.format("Total actual: %.3f ms%n", actualTotal / 1e6));
+
+        return sb.toString();
+    }
+
+    private static String human(long value, int base, String unit) {
+        String[] prefixes = {"", "K", "M", "G", "T", "P"};
+        double v = value;
+        int p = 0;
+        while (v >= base && p < prefixes.length - 1) {
+            v /= base;
+            p++;
+        }
+
+        return p == 0 ? value + unit : String.format("%.2f%s%s", v, prefixes[p], unit);
+    }
+}
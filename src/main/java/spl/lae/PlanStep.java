@@ -0,0 +1,109 @@
+package spl.lae;
+
+import parser.ComputationNode;
+import parser.ComputationNodeType;
+
+/**
+ * One operator node of a {@link Plan}: its inferred output shape, the kernel and task
+ * granularity chosen for it, the cost estimates behind that choice, and (after execution)
+ * the measured wall time.
+ */
+public class PlanStep {
+
+    private final ComputationNode node;
+    private final ComputationNodeType type;
+    private final int rows, cols;          // output shape
+    private final int inner;               // shared dimension for MULTIPLY, 0 otherwise
+    private final double density;          // estimated fraction of non-zeros in the output
+    private final KernelVariant kernel;
+    private final int rowsPerTask;
+    private final long estimatedFlops;
+    private final long estimatedBytes;
+    private final int strassenCutoff;      // leaf size of a STRASSEN step, 0 otherwise
+
+    private long actualNanos = -1;
+    private int actualTasks = -1;
+
+    PlanStep(ComputationNode node, ComputationNodeType type, int rows, int cols, int inner, double density,
+             KernelVariant kernel, int rowsPerTask, long estimatedFlops, long estimatedBytes) {
+        this(node, type, rows, cols, inner, density, kernel, rowsPerTask, estimatedFlops, estimatedBytes, 0);
+    }
+
+    PlanStep(ComputationNode node, ComputationNodeType type, int rows, int cols, int inner, double density,
+             KernelVariant kernel, int rowsPerTask, long estimatedFlops, long estimatedBytes, int strassenCutoff) {
+        this.node = node;
+        this.type = type;
+        this.rows = rows;
+        this.cols = cols;
+        this.inner = inner;
+        this.density = density;
+        this.kernel = kernel;
+        this.rowsPerTask = rowsPerTask;
+        this.estimatedFlops = estimatedFlops;
+        this.estimatedBytes = estimatedBytes;
+        this.strassenCutoff = kernel == KernelVariant.STRASSEN ? strassenCutoff : 0;
+    }
+
+    public boolean isElided() {
+        /// a TRANSPOSE folded into the SYRK product consuming it: nothing to compute
+
+        return type == ComputationNodeType.TRANSPOSE && kernel == KernelVariant.SYRK;
+    }
+
+    public ComputationNode getNode() {
+        return node;
+    }
+
+    public ComputationNodeType getType() {
+        return type;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getInner() {
+        return inner;
+    }
+
+    public double getDensity() {
+        return density;
+    }
+
+    public KernelVariant getKernel() {
+        return kernel;
+    }
+
+    public int getRowsPerTask() {
+        return rowsPerTask;
+    }
+
+    public long getEstimatedFlops() {
+        return estimatedFlops;
+    }
+
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    public int getStrassenCutoff() {
+        return strassenCutoff;
+    }
+
+    public long getActualNanos() {
+        return actualNanos;
+    }
+
+    public int getActualTasks() {
+        return actualTasks;
+    }
+
+    void recordActual(long nanos, int tasks) {
+        this.actualNanos = nanos;
+        this.actualTasks = tasks;
+    }
+}
@@ -0,0 +1,356 @@
+package spl.lae;
+
+import parser.ComputationNode;
+import parser.ComputationNodeType;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Planning stage run before any task is submitted.
+ * Walks the tree once (nesting n-ary operators on the way), infers every node's shape and
+ * fails fast on mismatches, estimates FLOPs and bytes moved, and picks a kernel and a task
+ * granularity (rows per task) for each operator node.
+ */
+public class Planner {
+
+    // Square products at least this large go to Strassen-Winograd when no kernel is forced
+    public static final int STRASSEN_THRESHOLD = 2048;
+    // Left operands at most this dense (and at least SPARSE_MIN_ELEMENTS big) use the CSR kernel
+    public static final double SPARSE_MAX_DENSITY = 0.1;
+    public static final long SPARSE_MIN_ELEMENTS = 4096;
+    // Right operands bigger than this no longer stay cache-resident across row tasks
+    public static final long TILED_MIN_BYTES = 256 * 1024;
+    // Smallest amount of work worth a task handoff, and how many tasks per worker we aim for
+    public static final long MIN_TASK_FLOPS = 1 << 15;
+    public static final int TASKS_PER_THREAD = 4;
+
+    private static final int DOUBLE_BYTES = Double.BYTES;
+
+    private final int numThreads;
+    private KernelVariant forcedKernel = null;
+    private int strassenCutoff = StrassenMultiply.DEFAULT_CUTOFF;
+
+    public Planner(int numThreads) {
+        this.numThreads = Math.max(1, numThreads);
+    }
+
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    public void setForcedKernel(KernelVariant kernel) {
+        /// use this MULTIPLY kernel wherever it applies, or null to choose by cost
+
+        this.forcedKernel = kernel;
+    }
+
+    public KernelVariant getForcedKernel() {
+        return forcedKernel;
+    }
+
+    public void setStrassenCutoff(int cutoff) {
+        if (cutoff < 1)
+            throw new IllegalArgumentException("Strassen cutoff must be positive: " + cutoff);
+        this.strassenCutoff = cutoff;
+    }
+
+    public int getStrassenCutoff() {
+        return strassenCutoff;
+    }
+
+    public Plan plan(ComputationNode root) {
+        /// infer shapes and choose kernels for every operator node, in resolution order
+
+        Plan plan = new Plan();
+        Map<ComputationNode, double[]> info = new IdentityHashMap<>(); // {rows, cols, density}
+
+        Deque<ComputationNode> stack = new ArrayDeque<>();
+        Deque<Boolean> expanded = new ArrayDeque<>();
+        stack.push(root);
+        expanded.push(false);
+
+        while (!stack.isEmpty()) {
+            ComputationNode node = stack.pop();
+            boolean done = expanded.pop();
+
+            if (node.getNodeType() == ComputationNodeType.MATRIX) {
+                double[][] m = node.getMatrix();
+                info.put(node, new double[]{m.length, m.length == 0 ? 0 : m[0].length, SparseMultiply.density(m)});
+                continue;
+            }
+
+            if (!done) {
+                checkArity(node);
+                node.associativeNesting();
+
+                stack.push(node);
+                expanded.push(true);
+                for (int i = node.getChildren().size() - 1; i >= 0; i--) {
+                    stack.push(node.getChildren().get(i));
+                    expanded.push(false);
+                }
+                continue;
+            }
+
+            PlanStep step = planNode(node, info);
+            info.put(node, new double[]{step.getRows(), step.getCols(), step.getDensity()});
+            plan.add(step);
+            if (step.getKernel() == KernelVariant.SYRK) {
+                // the product reads the leaf itself, so its TRANSPOSE operand is never computed
+                PlanStep transpose = plan.stepFor(gramTranspose(node));
+                plan.replace(transpose, new PlanStep(transpose.getNode(), ComputationNodeType.TRANSPOSE,
+                        transpose.getRows(), transpose.getCols(), 0, transpose.getDensity(), KernelVariant.SYRK, 0, 0, 0));
+            }
+        }
+
+        return plan;
+    }
+
+    private void checkArity(ComputationNode node) {
+        int operands = node.getChildren() == null ? 0 : node.getChildren().size();
+
+        switch (node.getNodeType()) {
+            case TRANSPOSE:
+            case NEGATE:
+            case POWER:
+                if (operands > 1)
+                    throw new IllegalArgumentException("Unary Operator Receive More Than Single Operand.");
+                if (operands == 0)
+                    throw new IllegalArgumentException("Operator Receive No Operands.");
+                if (node.getNodeType() == ComputationNodeType.POWER && node.getExponent() < 0)
+                    throw new IllegalArgumentException("Power Operator Has No Exponent.");
+                break;
+            case ADD:
+            case MULTIPLY:
+                if (operands < 2)
+                    throw new IllegalArgumentException("Binary Operator Receive Less Than Two Operands.");
+                break;
+            default:
+                throw new IllegalArgumentException("Unidentified Operator : " + node.getNodeType());
+        }
+    }
+
+    private PlanStep planNode(ComputationNode node, Map<ComputationNode, double[]> info) {
+        double[] left = info.get(node.getChildren().get(0));
+        int rows = (int) left[0], cols = (int) left[1];
+        double density = left[2];
+
+        switch (node.getNodeType()) {
+            case NEGATE: {
+                long elements = (long) rows * cols;
+                return new PlanStep(node, ComputationNodeType.NEGATE, rows, cols, 0, density, KernelVariant.NAIVE,
+                        granularity(rows, cols), elements, 4 * elements * DOUBLE_BYTES);
+            }
+            case TRANSPOSE: {
+                long elements = (long) rows * cols;
+                return new PlanStep(node, ComputationNodeType.TRANSPOSE, cols, rows, 0, density, KernelVariant.NAIVE,
+                        granularity(rows, cols), 0, 2 * elements * DOUBLE_BYTES);
+            }
+            case POWER:
+                if (rows != cols)
+                    throw new IllegalArgumentException("Matrix Length Mismatch");
+                return planPower(node, rows, density);
+            case ADD: {
+                double[] right = info.get(node.getChildren().get(1));
+                if (rows != (int) right[0] || cols != (int) right[1])
+                    throw new IllegalArgumentException("Matrix Length Mismatch");
+
+                long elements = (long) rows * cols;
+                if (structured(node))
+                    return new PlanStep(node, ComputationNodeType.ADD, rows, cols, 0, Math.min(1.0, density + right[2]),
+                            KernelVariant.STRUCTURED, granularity(rows, cols), elements, 2 * elements * DOUBLE_BYTES);
+                return new PlanStep(node, ComputationNodeType.ADD, rows, cols, 0, Math.min(1.0, density + right[2]),
+                        KernelVariant.NAIVE, granularity(rows, cols), elements, 5 * elements * DOUBLE_BYTES);
+            }
+            case MULTIPLY: {
+                double[] right = info.get(node.getChildren().get(1));
+                int inner = cols;
+                int outCols = (int) right[1];
+                if (inner != (int) right[0])
+                    throw new IllegalArgumentException("Matrix Length Mismatch");
+
+                double outDensity = inner == 0 ? 0 : 1 - Math.pow(1 - density * right[2], inner);
+                if ((forcedKernel == null || forcedKernel == KernelVariant.SYRK) && gramTranspose(node) != null) {
+                    // only the upper triangle, mirrored; B^T B first copies B transposed
+                    long pairs = (long) rows * (rows + 1) / 2;
+                    return new PlanStep(node, ComputationNodeType.MULTIPLY, rows, outCols, inner, outDensity,
+                            KernelVariant.SYRK, granularity(rows, (long) rows * inner),
+                            2 * pairs * inner, (2L * rows * inner + 2 * pairs) * DOUBLE_BYTES);
+                }
+                if (structured(node)) {
+                    // at most one pass over each operand (constant sums) plus the result
+                    long mn = (long) rows * outCols, flops = mn + (long) rows * inner + (long) inner * outCols;
+                    return new PlanStep(node, ComputationNodeType.MULTIPLY, rows, outCols, inner, outDensity,
+                            KernelVariant.STRUCTURED, granularity(rows, outCols), flops, (flops + mn) * DOUBLE_BYTES);
+                }
+                return planMultiply(node, rows, inner, outCols, density, right[2]);
+            }
+            default:
+                throw new IllegalArgumentException("Unidentified Operator : " + node.getNodeType());
+        }
+    }
+
+    static ComputationNode gramTranspose(ComputationNode node) {
+        /// the TRANSPOSE operand of A * T(A) or T(A) * A, where both A are leaves with the
+        /// same contents; null for any other node
+
+        if (node.getNodeType() != ComputationNodeType.MULTIPLY || node.getChildren().size() != 2)
+            return null;
+
+        for (int t = 0; t < 2; t++) {
+            ComputationNode transpose = node.getChildren().get(t), other = node.getChildren().get(1 - t);
+            if (transpose.getNodeType() != ComputationNodeType.TRANSPOSE || transpose.getChildren().size() != 1
+                    || other.getNodeType() != ComputationNodeType.MATRIX)
+                continue;
+
+            ComputationNode leaf = transpose.getChildren().get(0);
+            if (leaf.getNodeType() == ComputationNodeType.MATRIX && !leaf.isTiled() && !other.isTiled()
+                    && Arrays.deepEquals(leaf.getMatrix(), other.getMatrix()))
+                return transpose;
+        }
+
+        return null;
+    }
+
+    private boolean structured(ComputationNode node) {
+        /// an operand is a leaf of special structure, and no other kernel is forced
+
+        return (forcedKernel == null || forcedKernel == KernelVariant.STRUCTURED)
+                && StructuredKernel.applies(node.getNodeType(), node.getChildren().get(0), node.getChildren().get(1));
+    }
+
+    private PlanStep planMultiply(ComputationNode node, int m, int k, int n, double densityA, double densityB) {
+        KernelVariant kernel = chooseMultiplyKernel(m, k, n, densityA);
+        double outDensity = k == 0 ? 0 : 1 - Math.pow(1 - densityA * densityB, k);
+
+        long flops;
+        long bytes;
+        int rowsPerTask;
+        long mk = (long) m * k, kn = (long) k * n, mn = (long) m * n;
+
+        switch (kernel) {
+            case STRASSEN: {
+                int padded = StrassenMultiply.paddedSize(m, strassenCutoff);
+                int levels = 0;
+                while ((padded >> levels) > strassenCutoff)
+                    levels++;
+
+                long base = padded >> levels;
+                long leaves = (long) Math.pow(7, levels);
+                long addElements = 0;
+                for (int l = 0; l < levels; l++) {
+                    long half = padded >> (l + 1);
+                    addElements += (long) Math.pow(7, l) * 22 * half * half; // 15 adds + 7 block copies
+                }
+
+                flops = leaves * 2 * base * base * base + addElements;
+                bytes = (leaves * 3 * base * base + 3 * addElements) * DOUBLE_BYTES;
+                rowsPerTask = 0;
+                break;
+            }
+            case SPARSE: {
+                long nnz = (long) Math.ceil(densityA * mk);
+                flops = 2 * nnz * n;
+                bytes = (mk + nnz * n + 2 * mn) * DOUBLE_BYTES + nnz * (DOUBLE_BYTES + Integer.BYTES);
+                rowsPerTask = granularity(m, Math.max(1, flops / Math.max(1, m)));
+                break;
+            }
+            case GEMV:
+            case OUTER: {
+                // a single pass over both operands and the result
+                flops = 2 * mk * n;
+                bytes = (mk + kn + mn) * DOUBLE_BYTES;
+                rowsPerTask = granularity(m, 2 * kn);
+                break;
+            }
+            case TILED: {
+                long block = BlockedMultiply.DEFAULT_BLOCK;
+                flops = 2 * mk * n;
+                bytes = (mk * ceilDiv(n, block) + kn * ceilDiv(m, block) + 2 * mn * ceilDiv(k, block)) * DOUBLE_BYTES;
+                rowsPerTask = granularity(m, 2 * kn);
+                break;
+            }
+            default: {
+                flops = 2 * mk * n;
+                // column-major reload of B, every row task streams all of B, then the row-major copy out
+                bytes = (2 * kn + m * (k + kn) + 3 * mn) * DOUBLE_BYTES;
+                rowsPerTask = granularity(m, 2 * kn);
+            }
+        }
+
+        return new PlanStep(node, ComputationNodeType.MULTIPLY, m, n, k, outDensity, kernel, rowsPerTask, flops, bytes,
+                strassenCutoff);
+    }
+
+    private PlanStep planPower(ComputationNode node, int n, double density) {
+        /// binary exponentiation: one squaring per bit of the exponent after the highest, one more
+        /// multiply per set bit after the first; Strassen where a single n × n product would use it,
+        /// the blocked kernel otherwise (a sparse base fills in after a few squarings)
+
+        int exponent = node.getExponent();
+        int multiplies = exponent <= 1 ? 0 : 31 - Integer.numberOfLeadingZeros(exponent) + Integer.bitCount(exponent) - 1;
+        KernelVariant kernel = chooseMultiplyKernel(n, n, n, density) == KernelVariant.STRASSEN
+                ? KernelVariant.STRASSEN : KernelVariant.TILED;
+
+        // density of each squaring and accumulated product, as for a single MULTIPLY
+        double base = density, product = -1;
+        for (int e = exponent; e > 0; e >>= 1) {
+            if ((e & 1) != 0)
+                product = product < 0 ? base : 1 - Math.pow(1 - product * base, n);
+            if (e > 1)
+                base = 1 - Math.pow(1 - base * base, n);
+        }
+        double outDensity = exponent == 0 ? 1.0 / n : product;
+
+        long block = BlockedMultiply.DEFAULT_BLOCK, nn = (long) n * n;
+        long flops = multiplies * 2 * nn * n;
+        long bytes = multiplies * 4 * nn * ceilDiv(n, block) * DOUBLE_BYTES + 2 * nn * DOUBLE_BYTES;
+        return new PlanStep(node, ComputationNodeType.POWER, n, n, 0, outDensity, kernel,
+                granularity(n, 2 * nn), flops, bytes, strassenCutoff);
+    }
+
+    KernelVariant chooseMultiplyKernel(int m, int k, int n, double densityA) {
+        /// forced kernel where it applies, otherwise Strassen > sparse > tiled > naive by size
+
+        boolean square = m > 0 && m == k && k == n;
+
+        if (forcedKernel != null && !choosesItself(forcedKernel) && (forcedKernel != KernelVariant.STRASSEN || square))
+            return forcedKernel;
+
+        if (VectorMultiply.applies(m, k, n))
+            return k == 1 ? KernelVariant.OUTER : KernelVariant.GEMV;
+
+        if (square && m >= STRASSEN_THRESHOLD)
+            return KernelVariant.STRASSEN;
+        if (densityA <= SPARSE_MAX_DENSITY && (long) m * k >= SPARSE_MIN_ELEMENTS)
+            return KernelVariant.SPARSE;
+        if ((long) k * n * DOUBLE_BYTES > TILED_MIN_BYTES)
+            return KernelVariant.TILED;
+
+        return KernelVariant.NAIVE;
+    }
+
+    private static boolean choosesItself(KernelVariant kernel) {
+        /// kernels picked wherever they apply (by operand contents or shape) unless another is forced
+
+        return kernel == KernelVariant.STRUCTURED || kernel == KernelVariant.SYRK
+                || kernel == KernelVariant.GEMV || kernel == KernelVariant.OUTER;
+    }
+
+    int granularity(int rows, long flopsPerRow) {
+        /// rows per task: enough work to amortize the handoff, but still several tasks per worker
+
+        long byWork = ceilDiv(MIN_TASK_FLOPS, Math.max(1, flopsPerRow));
+        long byBalance = ceilDiv(rows, (long) numThreads * TASKS_PER_THREAD);
+
+        return (int) Math.max(1, Math.min(byWork, byBalance));
+    }
+
+    private static long ceilDiv(long a, long b) {
+        return (a + b - 1) / b;
+    }
+}
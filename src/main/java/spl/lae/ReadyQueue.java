@@ -0,0 +1,78 @@
+package spl.lae;
+
+import parser.ComputationNode;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dependency-counted ready queue over the steps of a {@link Plan}.
+ * Built once from the plan (which already visited every node), it hands out each
+ * operator node exactly once, as soon as all of its operands are resolved.
+ *
+ * Ready steps are kept on a LIFO stack seeded in reverse plan order: a parent is pushed
+ * the moment its last operand completes, so the resolution order is the same
+ * leftmost-deepest order findResolvable() produced, at O(1) per node instead of a
+ * fresh tree walk per step.
+ */
+public class ReadyQueue {
+
+    private final List<PlanStep> steps;
+    private final int[] parent;   // index of the step consuming step i, -1 for the root
+    private final int[] pending;  // operands of step i that are still unresolved operators
+    private final Map<ComputationNode, Integer> index = new IdentityHashMap<>();
+    private final Deque<Integer> ready = new ArrayDeque<>();
+    private int remaining;
+
+    public ReadyQueue(Plan plan) {
+        /// index the planned tree once: parent links and unresolved-operand counts
+
+        steps = plan.getSteps();
+        parent = plan.parentIndices();
+        pending = new int[steps.size()];
+        remaining = steps.size();
+
+        for (int i = 0; i < steps.size(); i++) {
+            index.put(steps.get(i).getNode(), i);
+            if (parent[i] >= 0)
+                pending[parent[i]]++;
+        }
+
+        for (int i = steps.size() - 1; i >= 0; i--)
+            if (pending[i] == 0)
+                ready.push(i);
+    }
+
+    public boolean isEmpty() {
+        return ready.isEmpty();
+    }
+
+    public int remaining() {
+        /// steps not yet completed
+
+        return remaining;
+    }
+
+    public PlanStep poll() {
+        /// next step whose operands are all resolved, or null if none is ready
+
+        Integer i = ready.poll();
+        return i == null ? null : steps.get(i);
+    }
+
+    public void complete(PlanStep step) {
+        /// mark a step resolved and release its parent if this was its last pending operand
+
+        Integer i = index.get(step.getNode());
+        if (i == null)
+            throw new IllegalStateException("Step is not part of this plan: " + step.getType());
+
+        remaining--;
+        int p = parent[i];
+        if (p >= 0 && --pending[p] == 0)
+            ready.push(p);
+    }
+}
@@ -0,0 +1,207 @@
+package spl.lae;
+
+import parser.ComputationNodeType;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * In-process cache of computed node results, shared by any number of engines and runs.
+ * Entries are keyed by a canonical 128-bit hash of the subtree: leaves hash their content,
+ * operator nodes hash their operator, kernel and operand keys, so equal subtrees in different
+ * expression files map to the same entry without their results ever being compared.
+ *
+ * Memory is bounded by an approximate byte budget with least-recently-used eviction.
+ * Stored matrices are private copies and every hit returns a fresh copy, because the engine
+ * mutates operand rows in place (ADD, NEGATE).
+ */
+public class ResultCache {
+
+    /**
+     * 128-bit subtree hash. Two independent 64-bit lanes keep accidental collisions
+     * out of reach for any realistic number of entries.
+     */
+    public static final class Key {
+        private final long hi, lo;
+
+        private Key(long hi, long lo) {
+            this.hi = hi;
+            this.lo = lo;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o).hi == hi && ((Key) o).lo == lo;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(hi ^ lo);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%016x%016x", hi, lo);
+        }
+    }
+
+    private final long maxBytes;
+    private final LinkedHashMap<Key, double[][]> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes = 0;
+
+    private long hits = 0;
+    private long misses = 0;
+    private long puts = 0;
+    private long evictions = 0;
+
+    public ResultCache(long maxBytes) {
+        if (maxBytes <= 0)
+            throw new IllegalArgumentException("Cache size must be positive: " + maxBytes);
+        this.maxBytes = maxBytes;
+    }
+
+    public double[][] get(Key key) {
+        /// return a private copy of the cached result, or null on a miss
+
+        double[][] cached;
+        synchronized (this) {
+            cached = entries.get(key);
+            if (cached == null) {
+                misses++;
+                return null;
+            }
+            hits++;
+        }
+
+        return copy(cached); // entries are never mutated, so copying outside the lock is safe
+    }
+
+    public void put(Key key, double[][] matrix) {
+        /// store a copy of the result, evicting least-recently-used entries to stay in budget
+
+        long size = sizeOf(matrix);
+        if (size > maxBytes)
+            return;
+
+        double[][] stored = copy(matrix);
+        synchronized (this) {
+            double[][] previous = entries.put(key, stored);
+            if (previous != null)
+                bytes -= sizeOf(previous);
+            bytes += size;
+            puts++;
+
+            Iterator<Map.Entry<Key, double[][]>> eldest = entries.entrySet().iterator();
+            while (bytes > maxBytes && eldest.hasNext()) {
+                Map.Entry<Key, double[][]> entry = eldest.next();
+                if (entry.getKey().equals(key))
+                    continue;
+                bytes -= sizeOf(entry.getValue());
+                eldest.remove();
+                evictions++;
+            }
+        }
+    }
+
+    public synchronized boolean contains(Key key) {
+        /// membership check that touches neither the statistics nor the LRU order
+
+        return entries.containsKey(key);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized String getReport() {
+        /// return readable cache statistics
+
+        long lookups = hits + misses;
+        return String.format("Result cache: %d entries, %d / %d bytes, hits = %d, misses = %d (%.1f%% hit rate), puts = %d, evictions = %d%n",
+                entries.size(), bytes, maxBytes, hits, misses, lookups == 0 ? 0.0 : 100.0 * hits / lookups, puts, evictions);
+    }
+
+    public static Key keyOf(double[][] matrix) {
+        /// content hash of a leaf matrix: shape plus the exact bits of every element
+
+        long hi = 0x9E3779B97F4A7C15L ^ matrix.length;
+        long lo = 0xC2B2AE3D27D4EB4FL + matrix.length;
+
+        for (double[] row : matrix) {
+            hi = mix(hi ^ row.length);
+            lo = mix(lo + row.length * 0x165667B19E3779F9L);
+            for (double v : row) {
+                long bits = Double.doubleToLongBits(v);
+                hi = Long.rotateLeft(hi ^ mix(bits), 29) * 0x9E3779B97F4A7C15L;
+                lo = (lo + mix(bits ^ 0x85EBCA77C2B2AE63L)) * 0xC2B2AE3D27D4EB4FL;
+            }
+        }
+
+        return new Key(mix(hi), mix(lo ^ hi));
+    }
+
+    public static Key keyOf(ComputationNodeType type, KernelVariant kernel, Key... operands) {
+        /// canonical hash of an operator node from its operator, kernel and operand keys
+
+        long hi = mix(0x27D4EB2F165667C5L ^ type.ordinal() ^ ((long) kernel.ordinal() << 8));
+        long lo = mix(0x94D049BB133111EBL + type.ordinal() * 31L + kernel.ordinal());
+
+        for (Key operand : operands) {
+            hi = mix(Long.rotateLeft(hi, 31) ^ operand.hi);
+            lo = mix(lo * 0x9E3779B97F4A7C15L + operand.lo);
+        }
+
+        return new Key(hi, lo);
+    }
+
+    public static Key keyOf(ComputationNodeType type, KernelVariant kernel, long parameter, Key... operands) {
+        /// key of an operator node that also has a scalar parameter (the exponent of POWER)
+
+        Key key = keyOf(type, kernel, operands);
+        return new Key(mix(key.hi ^ parameter), mix(key.lo + parameter * 0x9E3779B97F4A7C15L));
+    }
+
+    private static long mix(long z) {
+        // splitmix64 finalizer
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    static long sizeOf(double[][] matrix) {
+        // element data plus a rough per-array header
+        long size = 16 + 8L * matrix.length;
+        for (double[] row : matrix)
+            size += 16 + 8L * row.length;
+        return size;
+    }
+
+    private static double[][] copy(double[][] matrix) {
+        double[][] result = new double[matrix.length][];
+        for (int i = 0; i < matrix.length; i++)
+            result[i] = matrix[i].clone();
+        return result;
+    }
+}
@@ -0,0 +1,96 @@
+package spl.lae;
+
+import memory.SharedMatrix;
+import memory.SharedVector;
+import parser.ComputationNode;
+import parser.ComputationNodeType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Chain of element-wise consumers (ADD, NEGATE) pipelined onto the row tasks of the step
+ * producing their input. Each task runs a row range of the producer and then pushes those
+ * rows through every consumer right away, while they are still in the worker's cache,
+ * instead of waiting for the whole producer matrix behind the submitAll barrier.
+ */
+class RowPipeline {
+
+    private final List<PlanStep> consumers;
+    private final double[][][] operands;    // other operand of each ADD consumer, null for NEGATE
+    private final SharedMatrix[] shared;    // the same operands wrapped for SharedVector rows
+
+    RowPipeline(ComputationNode producer, List<PlanStep> consumers) {
+        /// capture the consumers' other operands now, before any of their nodes is resolved
+
+        this.consumers = List.copyOf(consumers);
+        operands = new double[consumers.size()][][];
+        shared = new SharedMatrix[consumers.size()];
+
+        ComputationNode below = producer;
+        for (int s = 0; s < consumers.size(); s++) {
+            ComputationNode node = consumers.get(s).getNode();
+            if (consumers.get(s).getType() == ComputationNodeType.ADD) {
+                operands[s] = otherOperand(node, below).getMatrix();
+                shared[s] = new SharedMatrix(operands[s]);
+            }
+            below = node;
+        }
+    }
+
+    static ComputationNode otherOperand(ComputationNode consumer, ComputationNode operand) {
+        /// the operand of a binary consumer that is not the given one
+
+        List<ComputationNode> children = consumer.getChildren();
+        return children.get(0) == operand ? children.get(1) : children.get(0);
+    }
+
+    List<PlanStep> getConsumers() {
+        return consumers;
+    }
+
+    List<double[][]> getOperands() {
+        /// other operands of the ADD consumers, in chain order
+
+        List<double[][]> list = new ArrayList<>();
+        for (double[][] operand : operands)
+            if (operand != null)
+                list.add(operand);
+        return list;
+    }
+
+    ComputationNode getOutput() {
+        /// node of the last consumer, which receives the pipeline's result
+
+        return consumers.get(consumers.size() - 1).getNode();
+    }
+
+    long getRowCost() {
+        /// element operations the consumers add to every row
+
+        return (long) consumers.get(0).getCols() * consumers.size();
+    }
+
+    void finishRow(double[] row, int r) {
+        /// run row r of a plain-array producer through every consumer, in place
+
+        for (int s = 0; s < consumers.size(); s++)
+            if (operands[s] != null) {
+                double[] other = operands[s][r];
+                for (int j = 0; j < row.length; j++)
+                    row[j] += other[j];
+            } else
+                for (int j = 0; j < row.length; j++)
+                    row[j] = -row[j];
+    }
+
+    void finishRow(SharedVector row, int r) {
+        /// run row r of a SharedMatrix producer through every consumer, with the usual locking
+
+        for (int s = 0; s < consumers.size(); s++)
+            if (shared[s] != null)
+                row.add(shared[s].get(r));
+            else
+                row.negate();
+    }
+}
@@ -0,0 +1,79 @@
+package spl.lae;
+
+/**
+ * Left operand of a MULTIPLY in compressed sparse row form.
+ * Each output row only touches the rows of B that its non-zeros point at,
+ * so the cost is O(nnz(A) · cols(B)) instead of O(rows(A) · inner · cols(B)).
+ * Zeros of A are skipped outright, so an infinity in B does not turn into NaN the way it
+ * would on the dense paths.
+ */
+public class SparseMultiply {
+
+    private final int[] rowStart;   // rowStart[i]..rowStart[i+1] index the non-zeros of row i
+    private final int[] columns;
+    private final double[] values;
+
+    public SparseMultiply(double[][] a) {
+        /// compress a dense row-major matrix into CSR
+
+        int nnz = 0;
+        for (double[] row : a)
+            for (double v : row)
+                if (v != 0)
+                    nnz++;
+
+        rowStart = new int[a.length + 1];
+        columns = new int[nnz];
+        values = new double[nnz];
+
+        int k = 0;
+        for (int i = 0; i < a.length; i++) {
+            rowStart[i] = k;
+            for (int j = 0; j < a[i].length; j++)
+                if (a[i][j] != 0) {
+                    columns[k] = j;
+                    values[k] = a[i][j];
+                    k++;
+                }
+        }
+        rowStart[a.length] = k;
+    }
+
+    public int nonZeros() {
+        return values.length;
+    }
+
+    public int nonZeros(int rowFrom, int rowTo) {
+        /// non-zeros stored in rows [rowFrom, rowTo)
+
+        return rowStart[rowTo] - rowStart[rowFrom];
+    }
+
+    public void multiplyRows(double[][] b, double[][] c, int rowFrom, int rowTo) {
+        /// c[rowFrom..rowTo) = a[rowFrom..rowTo) × b
+
+        for (int i = rowFrom; i < rowTo; i++) {
+            double[] cRow = c[i];
+            for (int k = rowStart[i]; k < rowStart[i + 1]; k++) {
+                double aik = values[k];
+                double[] bRow = b[columns[k]];
+                for (int j = 0; j < cRow.length; j++)
+                    cRow[j] += aik * bRow[j];
+            }
+        }
+    }
+
+    public static double density(double[][] m) {
+        /// fraction of non-zero entries
+
+        long nnz = 0, total = 0;
+        for (double[] row : m) {
+            total += row.length;
+            for (double v : row)
+                if (v != 0)
+                    nnz++;
+        }
+
+        return total == 0 ? 1.0 : (double) nnz / total;
+    }
+}
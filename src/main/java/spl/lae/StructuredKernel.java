@@ -0,0 +1,167 @@
+package spl.lae;
+
+import parser.ComputationNode;
+import parser.ComputationNodeType;
+import parser.MatrixStructure;
+
+import java.util.Arrays;
+
+/**
+ * MULTIPLY and ADD with an operand of known structure, in O(result) instead of O(m·k·n):
+ * a zero operand gives zeros, an identity is a copy, a diagonal scales rows (left) or
+ * columns (right), a constant right operand turns each row into one sum, a constant left
+ * operand makes every row the same, and a constant ADD operand is a broadcast.
+ * Every element comes out with the same bits as the naive kernel's (the dot products start
+ * from +0.0 and add the non-zero terms in the same order). The zero terms a product skips
+ * still count where the other operand is not finite: 0 × ±Inf or NaN makes the element NaN,
+ * as in the naive kernel.
+ */
+final class StructuredKernel {
+
+    private final ComputationNodeType type;
+    private final double[][] a, b;
+    private final MatrixStructure left, right;
+    private final double[] sharedRow; // every result row, for a constant left operand
+    // MULTIPLY by a zero or diagonal operand: non-finite entries per column of b (left operand
+    // structured) or per row of a (right), null when the other operand is all finite
+    private final int[] nonFinite;
+    private final boolean nonFiniteInB;
+
+    StructuredKernel(ComputationNodeType type, ComputationNode leftNode, ComputationNode rightNode) {
+        this.type = type;
+        a = leftNode.getMatrix();
+        b = rightNode.getMatrix();
+        left = structureOf(leftNode);
+        right = structureOf(rightNode);
+
+        if (type == ComputationNodeType.MULTIPLY && kind(left) == MatrixStructure.Kind.CONSTANT
+                && kind(right) == MatrixStructure.Kind.GENERAL) {
+            int k = b.length, n = b[0].length;
+            sharedRow = new double[n];
+            for (int j = 0; j < n; j++) {
+                double sum = 0;
+                for (int i = 0; i < k; i++)
+                    sum += left.getConstant() * b[i][j];
+                sharedRow[j] = sum;
+            }
+        } else
+            sharedRow = null;
+
+        nonFiniteInB = skipsZeros(kind(left));
+        if (type == ComputationNodeType.MULTIPLY && (nonFiniteInB || skipsZeros(kind(right))))
+            nonFinite = nonFiniteInB ? countNonFinite(b, true) : countNonFinite(a, false);
+        else
+            nonFinite = null;
+    }
+
+    private static boolean skipsZeros(MatrixStructure.Kind kind) {
+        return kind == MatrixStructure.Kind.ZERO || kind == MatrixStructure.Kind.IDENTITY
+                || kind == MatrixStructure.Kind.DIAGONAL;
+    }
+
+    private static int[] countNonFinite(double[][] m, boolean perColumn) {
+        /// non-finite entries per column (or row) of m, null if there are none
+
+        int[] counts = null;
+        for (int i = 0; i < m.length; i++)
+            for (int j = 0; j < m[i].length; j++)
+                if (!Double.isFinite(m[i][j])) {
+                    if (counts == null)
+                        counts = new int[perColumn ? m[i].length : m.length];
+                    counts[perColumn ? j : i]++;
+                }
+        return counts;
+    }
+
+    static boolean applies(ComputationNodeType type, ComputationNode leftNode, ComputationNode rightNode) {
+        /// true when an operand of a MULTIPLY or ADD is a leaf of special structure
+
+        return (type == ComputationNodeType.MULTIPLY || type == ComputationNodeType.ADD)
+                && (kind(structureOf(leftNode)) != MatrixStructure.Kind.GENERAL
+                || kind(structureOf(rightNode)) != MatrixStructure.Kind.GENERAL);
+    }
+
+    static MatrixStructure structureOf(ComputationNode node) {
+        /// detected structure of a leaf, null for operators and undetected leaves
+
+        return node.getNodeType() == ComputationNodeType.MATRIX ? node.getStructure() : null;
+    }
+
+    void computeRows(double[][] c, int from, int to) {
+        /// result rows [from, to) into c, whose rows are zero-filled
+
+        for (int r = from; r < to; r++)
+            if (type == ComputationNodeType.ADD)
+                addRow(c[r], r);
+            else
+                multiplyRow(c[r], r);
+    }
+
+    private void multiplyRow(double[] out, int r) {
+        MatrixStructure.Kind l = kind(left), k = kind(right);
+
+        if (l == MatrixStructure.Kind.ZERO || k == MatrixStructure.Kind.ZERO) {
+            if (nonFinite != null)
+                poisonSkippedTerms(out, r, MatrixStructure.Kind.ZERO);
+            return;
+        }
+        if (l == MatrixStructure.Kind.IDENTITY || l == MatrixStructure.Kind.DIAGONAL) {
+            double d = left.getDiagonal()[r];
+            for (int j = 0; j < out.length; j++)
+                out[j] = d * b[r][j] + 0.0;
+            if (nonFinite != null)
+                poisonSkippedTerms(out, r, l);
+        } else if (k == MatrixStructure.Kind.IDENTITY || k == MatrixStructure.Kind.DIAGONAL) {
+            double[] d = right.getDiagonal();
+            for (int j = 0; j < out.length; j++)
+                out[j] = a[r][j] * d[j] + 0.0;
+            if (nonFinite != null)
+                poisonSkippedTerms(out, r, k);
+        } else if (k == MatrixStructure.Kind.CONSTANT) {
+            double sum = 0;
+            for (double v : a[r])
+                sum += v * right.getConstant();
+            Arrays.fill(out, sum);
+        } else
+            System.arraycopy(sharedRow, 0, out, 0, out.length);
+    }
+
+    private void poisonSkippedTerms(double[] out, int r, MatrixStructure.Kind structured) {
+        /// NaN wherever a skipped zero term meets a non-finite entry; a diagonal doesn't skip
+        /// the term on its diagonal, that one is already in out
+
+        boolean diagonal = structured != MatrixStructure.Kind.ZERO;
+        for (int j = 0; j < out.length; j++) {
+            double kept = nonFiniteInB ? b[r][j] : a[r][j];
+            int skipped = nonFinite[nonFiniteInB ? j : r] - (diagonal && !Double.isFinite(kept) ? 1 : 0);
+            if (skipped > 0)
+                out[j] = Double.NaN;
+        }
+    }
+
+    private void addRow(double[] out, int r) {
+        MatrixStructure.Kind l = kind(left), k = kind(right);
+
+        if (k == MatrixStructure.Kind.ZERO || k == MatrixStructure.Kind.CONSTANT) {
+            double v = right.getConstant();
+            for (int j = 0; j < out.length; j++)
+                out[j] = a[r][j] + v;
+        } else if (l == MatrixStructure.Kind.ZERO || l == MatrixStructure.Kind.CONSTANT) {
+            double v = left.getConstant();
+            for (int j = 0; j < out.length; j++)
+                out[j] = v + b[r][j];
+        } else if (k == MatrixStructure.Kind.IDENTITY || k == MatrixStructure.Kind.DIAGONAL) {
+            for (int j = 0; j < out.length; j++)
+                out[j] = a[r][j] + 0.0;
+            out[r] = a[r][r] + right.getDiagonal()[r];
+        } else {
+            for (int j = 0; j < out.length; j++)
+                out[j] = 0.0 + b[r][j];
+            out[r] = left.getDiagonal()[r] + b[r][r];
+        }
+    }
+
+    private static MatrixStructure.Kind kind(MatrixStructure structure) {
+        return structure == null ? MatrixStructure.Kind.GENERAL : structure.getKind();
+    }
+}
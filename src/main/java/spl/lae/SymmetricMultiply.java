@@ -0,0 +1,71 @@
+package spl.lae;
+
+/**
+ * Gram product G = B · Bᵀ of one row-major matrix B (SYRK).
+ * G is symmetric, so only the upper triangle is computed (each entry one dot product of two
+ * rows of B) and then mirrored, half the FLOPs and operand reads of a general product.
+ * The dot products add in the same order as the naive kernel's, so G matches it bit for bit.
+ * Aᵀ · A is the Gram product of Aᵀ, see {@link #transposed}.
+ */
+public class SymmetricMultiply {
+
+    private final double[][] b;
+
+    public SymmetricMultiply(double[][] b) {
+        this.b = b;
+    }
+
+    public static SymmetricMultiply transposed(double[][] a) {
+        /// Gram product of aᵀ (that is aᵀ · a), from one read of a
+
+        int rows = a.length, cols = rows == 0 ? 0 : a[0].length;
+        double[][] t = new double[cols][rows];
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++)
+                t[j][i] = a[i][j];
+        return new SymmetricMultiply(t);
+    }
+
+    public int size() {
+        /// rows (and columns) of the result
+
+        return b.length;
+    }
+
+    public int inner() {
+        /// length of the dot products
+
+        return b.length == 0 ? 0 : b[0].length;
+    }
+
+    public void upperRows(double[][] g, int from, int to) {
+        /// g[i][j] for j >= i, for the rows i in [from, to) and their partners size()-1-i, so a
+        /// task gets as many entries for its short rows as for its long ones
+
+        int n = b.length;
+        for (int i = from; i < to; i++) {
+            upperRow(g, i);
+            if (n - 1 - i != i)
+                upperRow(g, n - 1 - i);
+        }
+    }
+
+    public void mirrorRows(double[][] g, int from, int to) {
+        /// g[i][j] = g[j][i] for j < i, for the rows i in [from, to), once the upper triangle is done
+
+        for (int i = from; i < to; i++)
+            for (int j = 0; j < i; j++)
+                g[i][j] = g[j][i];
+    }
+
+    private void upperRow(double[][] g, int i) {
+        double[] bi = b[i], gi = g[i];
+        for (int j = i; j < b.length; j++) {
+            double[] bj = b[j];
+            double sum = 0;
+            for (int t = 0; t < bi.length; t++)
+                sum += bi[t] * bj[t];
+            gi[j] = sum;
+        }
+    }
+}
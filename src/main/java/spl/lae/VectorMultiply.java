@@ -0,0 +1,64 @@
+package spl.lae;
+
+/**
+ * MULTIPLY where one dimension is 1: matrix × column vector (GEMV, n = 1), row vector ×
+ * matrix (m = 1) and the rank-1 outer product column × row (k = 1).
+ * The row-task path would lock all of B for every output row, or hand out one task per
+ * length-1 row; here tasks take either a band of output rows or, when there are too few
+ * rows to go around, a block of output columns across all rows.
+ * Every c[i][j] accumulates a[i][t] · b[t][j] for t ascending onto a zero-filled c, the same
+ * order as the naive kernel's dot product, so results match it bit for bit.
+ */
+public class VectorMultiply {
+
+    private final double[][] a, b;
+
+    public VectorMultiply(double[][] a, double[][] b) {
+        this.a = a;
+        this.b = b;
+    }
+
+    public static boolean applies(int m, int k, int n) {
+        return m > 0 && k > 0 && n > 0 && (m == 1 || k == 1 || n == 1);
+    }
+
+    public int inner() {
+        return a.length == 0 ? 0 : a[0].length;
+    }
+
+    public void multiplyRows(double[][] c, int rowFrom, int rowTo) {
+        /// c[rowFrom..rowTo) = a[rowFrom..rowTo) × b, c zero-filled
+
+        for (int i = rowFrom; i < rowTo; i++) {
+            double[] aRow = a[i], cRow = c[i];
+            if (cRow.length == 1) {
+                // GEMV: one dot product per row
+                double sum = 0;
+                for (int t = 0; t < aRow.length; t++)
+                    sum += aRow[t] * b[t][0];
+                cRow[0] = sum;
+                continue;
+            }
+            for (int t = 0; t < aRow.length; t++) {
+                double ait = aRow[t];
+                double[] bRow = b[t];
+                for (int j = 0; j < cRow.length; j++)
+                    cRow[j] += ait * bRow[j];
+            }
+        }
+    }
+
+    public void multiplyColumns(double[][] c, int colFrom, int colTo) {
+        /// columns [colFrom, colTo) of every row of c = a × b, c zero-filled
+
+        for (int i = 0; i < c.length; i++) {
+            double[] aRow = a[i], cRow = c[i];
+            for (int t = 0; t < aRow.length; t++) {
+                double ait = aRow[t];
+                double[] bRow = b[t];
+                for (int j = colFrom; j < colTo; j++)
+                    cRow[j] += ait * bRow[j];
+            }
+        }
+    }
+}
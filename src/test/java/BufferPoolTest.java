@@ -0,0 +1,106 @@
+import memory.BufferPool;
+import org.junit.jupiter.api.Test;
+import parser.ComputationNode;
+import parser.ComputationNodeType;
+import spl.lae.KernelVariant;
+import spl.lae.LinearAlgebraEngine;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BufferPoolTest {
+
+    @Test
+    void testReusesExactLengthAndCapsBytes() {
+        BufferPool pool = new BufferPool(3 * 8 * Double.BYTES);
+        double[] a = pool.acquire(8);
+        a[0] = 5;
+        pool.release(a);
+
+        assertEquals(3, pool.acquire(3).length, "Buffers are only reused at their exact length");
+        double[] b = pool.acquireZeroed(8);
+        assertSame(a, b);
+        assertEquals(0, b[0]);
+
+        for (int i = 0; i < 4; i++)
+            pool.release(new double[8]);
+        assertEquals(1, pool.getDropped(), "Only three buffers fit in the cap");
+        assertEquals(3 * 8 * Double.BYTES, pool.getPooledBytes());
+        pool.acquire(8);
+        assertEquals(0.5, pool.getReuseRate(), 1e-9); // two of four acquires reused a buffer
+    }
+
+    @Test
+    void testPooledRunsGiveSameResults() {
+        for (KernelVariant kernel : KernelVariant.values()) {
+            double[][] expected = new LinearAlgebraEngine(3).run(chain(kernel, null)).getMatrix();
+
+            for (boolean affinity : new boolean[]{false, true}) {
+                LinearAlgebraEngine engine = new LinearAlgebraEngine(3);
+                BufferPool pool = new BufferPool(1 << 20);
+                engine.setBufferPool(pool);
+                engine.setAffinity(affinity);
+                double[][] actual = engine.run(chain(kernel, engine)).getMatrix();
+
+                for (int i = 0; i < expected.length; i++)
+                    assertArrayEquals(expected[i], actual[i], 1e-9, kernel + " row " + i);
+                assertTrue(pool.getReleases() > 0, kernel + ": intermediates should go back to the pool");
+                assertSame(pool, engine.getMetrics().getBufferPool());
+            }
+        }
+    }
+
+    @Test
+    void testNaiveChainReusesBuffers() {
+        LinearAlgebraEngine engine = new LinearAlgebraEngine(2);
+        BufferPool pool = new BufferPool(1 << 20);
+        engine.setBufferPool(pool);
+        engine.run(chain(KernelVariant.NAIVE, engine));
+
+        assertTrue(pool.getHits() > 0, "Later steps of the same shape should reuse earlier arrays");
+        assertTrue(pool.getReuseRate() > 0.3, "Reuse rate " + pool.getReuseRate());
+    }
+
+    @Test
+    void testSpeculativeRunsReleaseNothing() {
+        // duplicate attempts that lose may still read their step's operands after it returns
+        double[][] expected = new LinearAlgebraEngine(3).run(chain(KernelVariant.NAIVE, null)).getMatrix();
+
+        for (int run = 0; run < 5; run++) {
+            LinearAlgebraEngine engine = new LinearAlgebraEngine(3);
+            BufferPool pool = new BufferPool(1 << 20);
+            engine.setBufferPool(pool);
+            engine.setSpeculation(1.01);
+            double[][] actual = engine.run(chain(KernelVariant.NAIVE, engine)).getMatrix();
+
+            for (int i = 0; i < expected.length; i++)
+                assertArrayEquals(expected[i], actual[i], 1e-9, "row " + i);
+            assertEquals(0, pool.getReleases(), "Nothing may be recycled while attempts can still be running");
+        }
+    }
+
+    private static ComputationNode chain(KernelVariant kernel, LinearAlgebraEngine engine) {
+        // ((((A*B) + C) * D) + -(E)) * F, all 12x12, so every step has the same shape
+        if (engine != null)
+            engine.setMultiplyKernel(kernel);
+        ComputationNode node = node(ComputationNodeType.MULTIPLY, leaf(1), leaf(2));
+        node = node(ComputationNodeType.ADD, node, leaf(3));
+        node = node(ComputationNodeType.MULTIPLY, node, leaf(4));
+        node = node(ComputationNodeType.ADD, node, node(ComputationNodeType.NEGATE, leaf(5)));
+        return node(ComputationNodeType.MULTIPLY, node, leaf(6));
+    }
+
+    private static ComputationNode node(ComputationNodeType type, ComputationNode... children) {
+        return new ComputationNode(type, new LinkedList<>(List.of(children)));
+    }
+
+    private static ComputationNode leaf(int seed) {
+        double[][] m = new double[12][12];
+        for (int i = 0; i < m.length; i++)
+            for (int j = 0; j < m[i].length; j++)
+                m[i][j] = ((i * 7 + j * 3 + seed) % 5) - 2;
+        return new ComputationNode(m);
+    }
+}
@@ -0,0 +1,90 @@
+import org.junit.jupiter.api.Test;
+import parser.ComputationNode;
+import parser.ComputationNodeType;
+import spl.lae.EvaluationSession;
+import spl.lae.LinearAlgebraEngine;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EvaluationSessionTest {
+
+    @Test
+    void testRecomputesOnlyTheChangedPath() {
+        // ((W * X) + B) + -(T(V) * U): changing X touches the left branch and the root only
+        double[][] w = matrix(4, 5, 1), x = matrix(5, 3, 2), b = matrix(4, 3, 3);
+        double[][] v = matrix(3, 4, 4), u = matrix(3, 3, 5);
+        ComputationNode xLeaf = new ComputationNode(x);
+        ComputationNode left = node(ComputationNodeType.ADD,
+                node(ComputationNodeType.MULTIPLY, new ComputationNode(w), xLeaf), new ComputationNode(b));
+        ComputationNode right = node(ComputationNodeType.NEGATE, node(ComputationNodeType.MULTIPLY,
+                node(ComputationNodeType.TRANSPOSE, new ComputationNode(v)), new ComputationNode(u)));
+        ComputationNode root = node(ComputationNodeType.ADD, left, right);
+
+        try (EvaluationSession session = new EvaluationSession(new LinearAlgebraEngine(2), root)) {
+            assertEquals(6, session.getOperatorCount());
+            assertMatrixEquals(fullRun(w, x, b, v, u), session.evaluate());
+            assertEquals(6, session.getLastRecomputed());
+
+            session.evaluate();
+            assertEquals(0, session.getLastRecomputed(), "Nothing changed");
+
+            for (int batch = 6; batch < 9; batch++) {
+                double[][] next = matrix(5, 3, batch);
+                session.update(xLeaf, next);
+                assertMatrixEquals(fullRun(w, next, b, v, u), session.evaluate());
+                assertEquals(3, session.getLastRecomputed(), "Only MULTIPLY, ADD and the root ADD");
+            }
+        }
+    }
+
+    @Test
+    void testRejectsUnknownLeavesAndShapeChanges() {
+        ComputationNode leaf = new ComputationNode(matrix(2, 2, 1));
+        ComputationNode root = node(ComputationNodeType.NEGATE, leaf);
+
+        try (EvaluationSession session = new EvaluationSession(new LinearAlgebraEngine(1), root)) {
+            assertThrows(IllegalArgumentException.class, () -> session.update(root, matrix(2, 2, 1)));
+            assertThrows(IllegalArgumentException.class,
+                    () -> session.update(new ComputationNode(matrix(2, 2, 1)), matrix(2, 2, 1)));
+            assertThrows(IllegalArgumentException.class, () -> session.update(leaf, matrix(3, 2, 1)));
+            assertEquals(-3.0, session.evaluate()[0][0], 0); // the original leaf value, negated
+        }
+    }
+
+    private static double[][] fullRun(double[][] w, double[][] x, double[][] b, double[][] v, double[][] u) {
+        ComputationNode left = node(ComputationNodeType.ADD,
+                node(ComputationNodeType.MULTIPLY, new ComputationNode(copy(w)), new ComputationNode(copy(x))),
+                new ComputationNode(copy(b)));
+        ComputationNode right = node(ComputationNodeType.NEGATE, node(ComputationNodeType.MULTIPLY,
+                node(ComputationNodeType.TRANSPOSE, new ComputationNode(copy(v))), new ComputationNode(copy(u))));
+        return new LinearAlgebraEngine(2).run(node(ComputationNodeType.ADD, left, right)).getMatrix();
+    }
+
+    private static void assertMatrixEquals(double[][] expected, double[][] actual) {
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++)
+            assertArrayEquals(expected[i], actual[i], 1e-9, "row " + i);
+    }
+
+    private static ComputationNode node(ComputationNodeType type, ComputationNode... children) {
+        return new ComputationNode(type, new LinkedList<>(List.of(children)));
+    }
+
+    private static double[][] matrix(int rows, int cols, int seed) {
+        double[][] m = new double[rows][cols];
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++)
+                m[i][j] = ((i * 5 + j * 3 + seed * 7) % 9) - 4;
+        return m;
+    }
+
+    private static double[][] copy(double[][] m) {
+        double[][] c = new double[m.length][];
+        for (int i = 0; i < m.length; i++)
+            c[i] = m[i].clone();
+        return c;
+    }
+}
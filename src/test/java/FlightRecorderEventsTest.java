@@ -0,0 +1,62 @@
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import parser.ComputationNode;
+import parser.InputParser;
+import parser.OutputWriter;
+import spl.lae.LinearAlgebraEngine;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlightRecorderEventsTest {
+
+    @Test
+    void testEngineEmitsDomainEvents(@TempDir Path dir) throws Exception {
+        Path input = dir.resolve("in.json");
+        Path output = dir.resolve("out.json");
+        Path dump = dir.resolve("run.jfr");
+        Files.writeString(input, "{\"operator\": \"*\", \"operands\": [[[1, 2], [3, 4]], [[5, 6], [7, 8]]]}");
+
+        try (Recording recording = new Recording()) {
+            for (String name : List.of("lae.Parse", "lae.Operator", "lae.Task", "lae.SubmitWait", "lae.Write"))
+                recording.enable(name).withoutThreshold();
+            recording.start();
+
+            ComputationNode root = new InputParser().parse(input.toString());
+            new LinearAlgebraEngine(1).run(root);
+            OutputWriter.write(root.getMatrix(), output.toString());
+
+            recording.stop();
+            recording.dump(dump);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+
+        RecordedEvent operator = only(events, "lae.Operator");
+        assertEquals("MULTIPLY", operator.getString("operator"));
+        assertEquals(2, operator.getInt("rows"));
+        assertEquals(2, operator.getInt("inner"));
+        assertFalse(operator.getBoolean("cached"));
+
+        assertTrue(events.stream().filter(e -> e.getEventType().getName().equals("lae.Task"))
+                .allMatch(e -> e.getInt("workerId") == 0 && !e.getBoolean("failed")));
+        assertEquals(operator.getInt("tasks"), count(events, "lae.Task"));
+        assertTrue(only(events, "lae.Parse").getBoolean("succeeded"));
+        assertEquals(2, only(events, "lae.Write").getInt("cols"));
+    }
+
+    private static long count(List<RecordedEvent> events, String name) {
+        return events.stream().filter(e -> e.getEventType().getName().equals(name)).count();
+    }
+
+    private static RecordedEvent only(List<RecordedEvent> events, String name) {
+        assertEquals(1, count(events, name), name);
+        return events.stream().filter(e -> e.getEventType().getName().equals(name)).findFirst().orElseThrow();
+    }
+}
@@ -0,0 +1,93 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import parser.ComputationNode;
+import parser.ComputationNodeType;
+import parser.InputParser;
+import parser.MatrixStructure;
+import spl.lae.LinearAlgebraEngine;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InputParserTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testParsesExample() throws Exception {
+        ComputationNode root = new InputParser().parse("example.json");
+
+        assertEquals(ComputationNodeType.ADD, root.getNodeType());
+        assertEquals(2, root.getChildren().size());
+        assertEquals(ComputationNodeType.MULTIPLY, root.getChildren().get(0).getNodeType());
+        double[][] constant = root.getChildren().get(1).getMatrix();
+        assertEquals(10, constant.length);
+        assertEquals(5.0, constant[9][9], 0);
+        assertEquals(MatrixStructure.Kind.CONSTANT, root.getChildren().get(1).getStructure().getKind());
+        assertEquals(5.0, root.getChildren().get(1).getStructure().getConstant(), 0);
+    }
+
+    @Test
+    void testFieldOrderDoesNotMatter() throws Exception {
+        ComputationNode root = parse("{\"operands\": [[[1, 2]], [[3, 4]]], \"note\": {\"x\": [1]}, \"operator\": \"+\"}");
+
+        assertEquals(ComputationNodeType.ADD, root.getNodeType());
+        assertArrayEquals(new double[]{3, 4}, root.getChildren().get(1).getMatrix()[0], 0);
+    }
+
+    @Test
+    void testMatrixErrors() {
+        ParseException empty = assertThrows(ParseException.class, () -> parse("[]"));
+        assertEquals("Empty array cannot be parsed as DataNode.", empty.getMessage());
+
+        ParseException vector = assertThrows(ParseException.class, () -> parse("[1, 2]"));
+        assertEquals("Vectors (1D arrays) are not supported as standalone nodes.", vector.getMessage());
+
+        ParseException ragged = assertThrows(ParseException.class, () -> parse("[[1, 2], [3]]"));
+        assertEquals("Inconsistent row sizes in matrix.", ragged.getMessage());
+
+        assertThrows(ParseException.class, () -> parse("{\"operator\": \"+\"}"));
+        assertThrows(IllegalArgumentException.class, () -> parse("{\"operator\": \"%\", \"operands\": [[[1]]]}"));
+    }
+
+    @Test
+    void testVeryDeepChainAtDefaultStackSize() throws Exception {
+        // 20000 nested negations: far beyond what recursive parsing or traversal survives
+        int depth = 20000;
+        StringBuilder json = new StringBuilder();
+        for (int i = 0; i < depth; i++)
+            json.append("{\"operator\":\"-\",\"operands\":[");
+        json.append("[[1.5, -2]]");
+        for (int i = 0; i < depth; i++)
+            json.append("]}");
+
+        ComputationNode root = parse(json.toString());
+        assertNotNull(root.findResolvable());
+
+        ComputationNode result = new LinearAlgebraEngine(2).run(root);
+        assertArrayEquals(new double[]{1.5, -2}, result.getMatrix()[0], 0);
+    }
+
+    @Test
+    void testVeryWideSumNestsIteratively() throws Exception {
+        StringBuilder json = new StringBuilder("{\"operator\":\"+\",\"operands\":[");
+        for (int i = 0; i < 20000; i++)
+            json.append(i == 0 ? "" : ",").append("[[1]]");
+        json.append("]}");
+
+        ComputationNode result = new LinearAlgebraEngine(2).run(parse(json.toString()));
+
+        assertEquals(20000.0, result.getMatrix()[0][0], 0);
+    }
+
+    private ComputationNode parse(String json) throws IOException, ParseException {
+        Path file = dir.resolve("input.json");
+        Files.writeString(file, json);
+        return new InputParser().parse(file.toString());
+    }
+}
@@ -0,0 +1,53 @@
+package scheduling;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void testEmptyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMin());
+        assertEquals(0, histogram.getPercentile(99));
+    }
+
+    @Test
+    void testPercentilesWithinBucketError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long v = 1; v <= 10_000; v++)
+            histogram.record(v * 1000);
+
+        assertEquals(10_000, histogram.getCount());
+        assertEquals(1000, histogram.getMin());
+        assertEquals(10_000_000, histogram.getMax());
+        assertEquals(5_000_500.0, histogram.getMean(), 1);
+
+        long p50 = histogram.getPercentile(50);
+        long p99 = histogram.getPercentile(99);
+        assertTrue(p50 >= 5_000_000 && p50 <= 5_000_000 * 1.125, "p50 = " + p50);
+        assertTrue(p99 >= 9_900_000 && p99 <= 10_000_000, "p99 = " + p99);
+    }
+
+    @Test
+    void testExecutorRecordsTasks() {
+        TiredExecutor executor = new TiredExecutor(2);
+        try {
+            executor.submitAll(java.util.List.of(() -> {}, () -> {}, () -> {}));
+
+            ExecutorMetrics metrics = executor.getMetrics();
+            assertEquals(3, metrics.getTasksSubmitted());
+            assertEquals(3, metrics.getTasksCompleted());
+            assertEquals(3, metrics.getTaskDuration().getCount());
+            assertEquals(3, metrics.getHandoffWait().getCount());
+            assertEquals(2, ((java.util.List<?>) metrics.toMap().get("workers")).size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -3,10 +3,15 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import parser.ComputationNode;
 import parser.ComputationNodeType;
+import scheduling.TiredTask;
+import spl.lae.EngineMetrics;
+import spl.lae.KernelVariant;
 import spl.lae.LinearAlgebraEngine;
+import spl.lae.SparseMultiply;
 
 import java.util.Arrays;
 import java.util.LinkedList;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -156,6 +161,90 @@ class LinearAlgebraEngineTest {
         });
     }
 
+    @Test
+    void testMetricsRecordedPerOperator() {
+        double[][] A = {{1, 2}, {3, 4}};
+        double[][] B = {{5, 6}, {7, 8}};
+
+        runOperation(ComputationNodeType.MULTIPLY, A, B);
+
+        EngineMetrics.OperatorStats multiply = engine.getMetrics().getOperator("MULTIPLY");
+        assertNotNull(multiply);
+        assertEquals(1, multiply.getSteps());
+        assertEquals(multiply.getTasks(), engine.getMetrics().getExecutorMetrics().getTasksCompleted());
+        assertEquals(1, engine.getMetrics().getRunTime().getCount());
+        assertTrue(engine.getMetrics().toJson().contains("\"MULTIPLY\""));
+    }
+
+    @Test
+    void testLockProfilingPerOperator() {
+        double[][] A = {{1, 2}, {3, 4}};
+        double[][] B = {{5, 6}, {7, 8}};
+
+        engine.setLockProfiling(true);
+        runOperation(ComputationNodeType.ADD, A, B);
+
+        EngineMetrics.OperatorStats add = engine.getMetrics().getOperator("ADD");
+        assertTrue(add.getLeftLocks().getWriteAcquisitions() >= 2, "Every left row is write-locked once");
+        assertTrue(add.getRightLocks().getReadAcquisitions() >= 2);
+        assertTrue(engine.getMetrics().getLockReport().contains("ADD"));
+    }
+
+    @Test
+    void testSparseTaskCostsFollowNonZeros() {
+        double[][] a = {{1, 0, 0}, {0, 0, 0}, {1, 1, 1}};
+        double[][] b = {{1, 2}, {3, 4}, {5, 6}};
+
+        List<Runnable> tasks = engine.createSparseMultiplyTasks(new SparseMultiply(a), b, new double[3][2]);
+
+        assertEquals(3, tasks.size());
+        assertEquals(List.of(4L, 0L, 12L), tasks.stream().map(TiredTask::costOf).toList());
+    }
+
+    @Test
+    void testSpeculativeRowTasksGiveSameResults() {
+        double[][] A = {{1, 2}, {3, 4}};
+        double[][] B = {{5, 6}, {7, 8}};
+
+        engine.setSpeculation(1.5);
+        ComputationNode result = runOperation(ComputationNodeType.ADD, A, B);
+
+        assertArrayEquals(new double[]{6, 8}, result.getMatrix()[0], 0);
+        assertArrayEquals(new double[]{10, 12}, result.getMatrix()[1], 0);
+        assertArrayEquals(new double[]{1, 2}, A[0], 0, "Speculative ADD must not write into its operand");
+    }
+
+    @Test
+    void testAffinityModeGivesSameResults() {
+        double[][] A = {{1, 2}, {3, 4}};
+        double[][] B = {{5, 6}, {7, 8}};
+
+        engine.setAffinity(true);
+        ComputationNode result = runOperation(ComputationNodeType.MULTIPLY, A, B);
+
+        assertMatrixEquals(new double[][]{{19, 22}, {43, 50}}, result.getMatrix());
+    }
+
+    @Test
+    void testPipelinedConsumersGiveSameResults() {
+        // -((A * B) + C): ADD and NEGATE run inside the MULTIPLY row tasks
+        for (KernelVariant kernel : new KernelVariant[]{KernelVariant.NAIVE, KernelVariant.TILED}) {
+            engine = new LinearAlgebraEngine(numThreads);
+            engine.setMultiplyKernel(kernel);
+            engine.setPipelining(true);
+
+            ComputationNode product = new ComputationNode(ComputationNodeType.MULTIPLY, new LinkedList<>(List.of(
+                    new ComputationNode(new double[][]{{1, 2}, {3, 4}}), new ComputationNode(new double[][]{{5, 6}, {7, 8}}))));
+            ComputationNode sum = new ComputationNode(ComputationNodeType.ADD, new LinkedList<>(List.of(
+                    product, new ComputationNode(new double[][]{{1, 1}, {1, 1}}))));
+            ComputationNode root = engine.run(new ComputationNode(ComputationNodeType.NEGATE, new LinkedList<>(List.of(sum))));
+
+            assertMatrixEquals(new double[][]{{-20, -23}, {-44, -51}}, root.getMatrix());
+            assertEquals(1, engine.getMetrics().getOperator("ADD (PIPELINED)").getSteps());
+            assertEquals(1, engine.getMetrics().getOperator("NEGATE (PIPELINED)").getSteps());
+        }
+    }
+
     private ComputationNode runOperation(ComputationNodeType type, double[][] matA, double[][] matB) {
 
         LinkedList<ComputationNode> nodeList = new LinkedList<>();
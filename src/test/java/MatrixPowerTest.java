@@ -0,0 +1,139 @@
+import memory.BufferPool;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import parser.ComputationNode;
+import parser.ComputationNodeType;
+import parser.InputParser;
+import spl.lae.KernelVariant;
+import spl.lae.LinearAlgebraEngine;
+import spl.lae.PlanStep;
+import spl.lae.ResultCache;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatrixPowerTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testParsesPowerOperator() throws Exception {
+        ComputationNode root = parse("{\"operator\": \"^\", \"exponent\": 64, \"operands\": [[[1, 1], [0, 1]]]}");
+
+        assertEquals(ComputationNodeType.POWER, root.getNodeType());
+        assertEquals(64, root.getExponent());
+        assertEquals(1, root.getChildren().size());
+
+        assertThrows(ParseException.class, () -> parse("{\"operator\": \"^\", \"operands\": [[[1]]]}"));
+        assertThrows(ParseException.class, () -> parse("{\"operator\": \"^\", \"exponent\": -2, \"operands\": [[[1]]]}"));
+        assertThrows(ParseException.class, () -> parse("{\"operator\": \"^\", \"exponent\": 1.5, \"operands\": [[[1]]]}"));
+    }
+
+    @Test
+    void testMatchesChainedMultiplyWithLogarithmicSteps() {
+        // small integer entries keep every power exact, so any multiply order gives the same bits
+        double[][] a = {{1, 1, 0}, {1, 0, 0}, {0, 1, 1}};
+        int[] exponents = {2, 3, 7, 8, 13, 20};
+
+        for (int exponent : exponents) {
+            List<ComputationNode> chain = new LinkedList<>();
+            for (int i = 0; i < exponent; i++)
+                chain.add(new ComputationNode(copy(a)));
+            double[][] expected = new LinearAlgebraEngine(2).run(
+                    new ComputationNode(ComputationNodeType.MULTIPLY, chain)).getMatrix();
+
+            LinearAlgebraEngine engine = new LinearAlgebraEngine(2);
+            double[][] actual = engine.run(power(a, exponent)).getMatrix();
+
+            PlanStep step = engine.getLastPlan().getSteps().get(0);
+            int multiplies = 31 - Integer.numberOfLeadingZeros(exponent) + Integer.bitCount(exponent) - 1;
+            assertEquals(KernelVariant.TILED, step.getKernel());
+            assertEquals(multiplies * 2L * 27, step.getEstimatedFlops(), "exponent " + exponent);
+            assertEquals(1, engine.getLastPlan().getSteps().size());
+            for (int i = 0; i < 3; i++)
+                assertArrayEquals(expected[i], actual[i], 0, "exponent " + exponent);
+        }
+    }
+
+    @Test
+    void testExponentZeroAndOne() {
+        double[][] a = {{2, 3}, {4, 5}};
+
+        double[][] identity = new LinearAlgebraEngine(2).run(power(a, 0)).getMatrix();
+        assertArrayEquals(new double[]{1, 0}, identity[0], 0);
+        assertArrayEquals(new double[]{0, 1}, identity[1], 0);
+
+        ComputationNode node = power(a, 1);
+        double[][] input = node.getChildren().get(0).getMatrix();
+        double[][] same = new LinearAlgebraEngine(2).run(node).getMatrix();
+        assertNotSame(input, same, "The result must not share the operand's arrays");
+        assertArrayEquals(a[1], same[1], 0);
+    }
+
+    @Test
+    void testRejectsNonSquareOperandAndMissingExponent() {
+        RuntimeException shape = assertThrows(RuntimeException.class,
+                () -> new LinearAlgebraEngine(2).run(power(new double[][]{{1, 2, 3}}, 4)));
+        assertEquals("Matrix Length Mismatch", shape.getMessage());
+
+        ComputationNode missing = new ComputationNode(ComputationNodeType.POWER,
+                new LinkedList<>(List.of(new ComputationNode(new double[][]{{1}}))));
+        assertThrows(RuntimeException.class, () -> new LinearAlgebraEngine(2).run(missing));
+    }
+
+    @Test
+    void testReusesBuffersAndCachesPerExponent() {
+        double[][] a = new double[40][40];
+        for (int i = 0; i < 40; i++)
+            a[i][(i * 7) % 40] = 1; // a permutation, so every power stays exact
+
+        BufferPool pool = new BufferPool(1 << 20);
+        LinearAlgebraEngine pooled = new LinearAlgebraEngine(4);
+        pooled.setBufferPool(pool);
+        double[][] expected = new LinearAlgebraEngine(4).run(power(a, 30)).getMatrix();
+        double[][] actual = pooled.run(power(a, 30)).getMatrix();
+        for (int i = 0; i < 40; i++)
+            assertArrayEquals(expected[i], actual[i], 0);
+        assertEquals(3 * 40, pool.getAcquires(), "Seven multiplies should need only three 40-row buffers");
+        assertEquals(2 * 40, pool.getReleases(), "The buffers left over should go back to the pool");
+
+        ResultCache cache = new ResultCache(1 << 20);
+        LinearAlgebraEngine first = new LinearAlgebraEngine(2);
+        first.setResultCache(cache);
+        first.run(power(a, 3));
+        LinearAlgebraEngine second = new LinearAlgebraEngine(2);
+        second.setResultCache(cache);
+        double[][] cached = second.run(power(a, 2)).getMatrix();
+
+        assertEquals(0, cache.getHits(), "A different exponent must not hit the cached power");
+        double[][] square = new LinearAlgebraEngine(2).run(power(a, 2)).getMatrix();
+        for (int i = 0; i < 40; i++)
+            assertArrayEquals(square[i], cached[i], 0);
+    }
+
+    private static ComputationNode power(double[][] a, int exponent) {
+        ComputationNode node = new ComputationNode(ComputationNodeType.POWER,
+                new LinkedList<>(List.of(new ComputationNode(copy(a)))));
+        node.setExponent(exponent);
+        return node;
+    }
+
+    private static double[][] copy(double[][] m) {
+        double[][] copy = new double[m.length][];
+        for (int i = 0; i < m.length; i++)
+            copy[i] = m[i].clone();
+        return copy;
+    }
+
+    private ComputationNode parse(String json) throws Exception {
+        Path file = dir.resolve("input.json");
+        Files.writeString(file, json);
+        return new InputParser().parse(file.toString());
+    }
+}
@@ -0,0 +1,145 @@
+import org.junit.jupiter.api.Test;
+import parser.ComputationNode;
+import parser.ComputationNodeType;
+import parser.MatrixStructure;
+import spl.lae.KernelVariant;
+import spl.lae.LinearAlgebraEngine;
+import spl.lae.PlanStep;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatrixStructureTest {
+
+    @Test
+    void testDetection() {
+        assertEquals(MatrixStructure.Kind.ZERO, MatrixStructure.detect(new double[3][4]).getKind());
+        assertEquals(MatrixStructure.Kind.IDENTITY, MatrixStructure.detect(diagonal(1, 1, 1)).getKind());
+        MatrixStructure d = MatrixStructure.detect(diagonal(2, -1, 0.5));
+        assertEquals(MatrixStructure.Kind.DIAGONAL, d.getKind());
+        assertArrayEquals(new double[]{2, -1, 0.5}, d.getDiagonal(), 0);
+        MatrixStructure c = MatrixStructure.detect(constant(2, 5, 7));
+        assertEquals(MatrixStructure.Kind.CONSTANT, c.getKind());
+        assertEquals(7, c.getConstant(), 0);
+
+        double[][] general = diagonal(1, 2, 3);
+        general[0][2] = 4;
+        assertTrue(MatrixStructure.detect(general).isGeneral());
+        assertTrue(MatrixStructure.detect(diagonal(1, Double.NaN)).isGeneral());
+        assertTrue(MatrixStructure.detect(constant(2, 2, -0.0)).getKind() != MatrixStructure.Kind.ZERO);
+    }
+
+    @Test
+    void testStructuredKernelsMatchNaiveBitForBit() {
+        double[][] g = general(4, 4);
+        double[][][] specials = {new double[4][4], diagonal(1, 1, 1, 1), diagonal(3, -0.5, 2, 7), constant(4, 4, 5)};
+
+        for (double[][] special : specials)
+            for (ComputationNodeType type : new ComputationNodeType[]{ComputationNodeType.MULTIPLY, ComputationNodeType.ADD})
+                for (boolean specialLeft : new boolean[]{true, false}) {
+                    String name = type + " " + MatrixStructure.detect(special) + (specialLeft ? " left" : " right");
+                    double[][] expected = run(type, special, g, specialLeft, KernelVariant.NAIVE);
+                    LinearAlgebraEngine engine = new LinearAlgebraEngine(2);
+                    double[][] actual = run(engine, type, special, g, specialLeft);
+
+                    assertEquals(KernelVariant.STRUCTURED, engine.getLastPlan().getSteps().get(0).getKernel(), name);
+                    for (int i = 0; i < expected.length; i++)
+                        for (int j = 0; j < expected[i].length; j++)
+                            assertEquals(Double.doubleToRawLongBits(expected[i][j]), Double.doubleToRawLongBits(actual[i][j]),
+                                    name + " at " + i + "," + j);
+                }
+    }
+
+    @Test
+    void testStructuredKernelsKeepNonFiniteOperands() {
+        // 0 * Inf is NaN in the naive kernel, so skipping the zero terms must not hide it
+        double[][] g = general(4, 4);
+        g[1][2] = Double.POSITIVE_INFINITY;
+        g[2][2] = Double.NEGATIVE_INFINITY;
+        g[3][0] = Double.NaN;
+        double[][][] specials = {new double[4][4], diagonal(1, 1, 1, 1), diagonal(3, -0.5, 0, 7), constant(4, 4, 5)};
+
+        for (double[][] special : specials)
+            for (ComputationNodeType type : new ComputationNodeType[]{ComputationNodeType.MULTIPLY, ComputationNodeType.ADD})
+                for (boolean specialLeft : new boolean[]{true, false}) {
+                    String name = type + " " + MatrixStructure.detect(special) + (specialLeft ? " left" : " right");
+                    double[][] expected = run(type, special, g, specialLeft, KernelVariant.NAIVE);
+                    LinearAlgebraEngine engine = new LinearAlgebraEngine(2);
+                    double[][] actual = run(engine, type, special, g, specialLeft);
+
+                    assertEquals(KernelVariant.STRUCTURED, engine.getLastPlan().getSteps().get(0).getKernel(), name);
+                    for (int i = 0; i < expected.length; i++)
+                        assertArrayEquals(expected[i], actual[i], 0, name + " row " + i);
+                }
+    }
+
+    @Test
+    void testUndetectedOrForcedLeavesUseOtherKernels() {
+        LinearAlgebraEngine engine = new LinearAlgebraEngine(1);
+        engine.run(node(ComputationNodeType.MULTIPLY, new ComputationNode(diagonal(1, 1)), new ComputationNode(general(2, 2))));
+        PlanStep step = engine.getLastPlan().getSteps().get(0);
+        assertEquals(KernelVariant.NAIVE, step.getKernel(), "Structure is only known for parsed (or tagged) leaves");
+
+        double[][] structured = run(ComputationNodeType.MULTIPLY, constant(3, 3, 2), general(3, 3), true, KernelVariant.STRUCTURED);
+        double[][] tiled = run(ComputationNodeType.MULTIPLY, constant(3, 3, 2), general(3, 3), true, KernelVariant.TILED);
+        for (int i = 0; i < 3; i++)
+            assertArrayEquals(structured[i], tiled[i], 1e-9);
+    }
+
+    private static double[][] run(ComputationNodeType type, double[][] special, double[][] g, boolean specialLeft,
+                                  KernelVariant kernel) {
+        LinearAlgebraEngine engine = new LinearAlgebraEngine(2);
+        engine.setMultiplyKernel(kernel);
+        return run(engine, type, special, g, specialLeft);
+    }
+
+    private static double[][] run(LinearAlgebraEngine engine, ComputationNodeType type, double[][] special, double[][] g,
+                                  boolean specialLeft) {
+        // fresh copies each time: the naive kernels update their left operand in place
+        ComputationNode s = leaf(copy(special)), other = leaf(copy(g));
+        return engine.run(specialLeft ? node(type, s, other) : node(type, other, s)).getMatrix();
+    }
+
+    private static ComputationNode leaf(double[][] m) {
+        ComputationNode leaf = new ComputationNode(m);
+        leaf.setStructure(MatrixStructure.detect(m));
+        return leaf;
+    }
+
+    private static ComputationNode node(ComputationNodeType type, ComputationNode... children) {
+        return new ComputationNode(type, new LinkedList<>(List.of(children)));
+    }
+
+    private static double[][] diagonal(double... d) {
+        double[][] m = new double[d.length][d.length];
+        for (int i = 0; i < d.length; i++)
+            m[i][i] = d[i];
+        return m;
+    }
+
+    private static double[][] constant(int rows, int cols, double value) {
+        double[][] m = new double[rows][cols];
+        for (double[] row : m)
+            Arrays.fill(row, value);
+        return m;
+    }
+
+    private static double[][] general(int rows, int cols) {
+        // includes negative values, so products hit -0.0 against the zeros of a diagonal
+        double[][] m = new double[rows][cols];
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++)
+                m[i][j] = 0.1 * (i * cols + j) - 0.7;
+        return m;
+    }
+
+    private static double[][] copy(double[][] m) {
+        double[][] c = new double[m.length][];
+        for (int i = 0; i < m.length; i++)
+            c[i] = m[i].clone();
+        return c;
+    }
+}
@@ -0,0 +1,234 @@
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import parser.ComputationNode;
+import parser.ComputationNodeType;
+import spl.lae.AdmissionController;
+import spl.lae.KernelVariant;
+import spl.lae.LinearAlgebraEngine;
+import spl.lae.Main;
+import spl.lae.MemoryEstimator;
+import spl.lae.Plan;
+import spl.lae.Planner;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MemoryEstimatorTest {
+
+    @Test
+    void testSingleStepPeak() {
+        // naive 2x3 * 3x4: inputs, the column-major reload of B, new rows and the row-major copy
+        Plan plan = plan(node(ComputationNodeType.MULTIPLY, leaf(2, 3, 1), leaf(3, 4, 1)));
+
+        long expected = MemoryEstimator.matrixBytes(2, 3) + MemoryEstimator.matrixBytes(3, 4)
+                + MemoryEstimator.matrixBytes(4, 3) + 2 * MemoryEstimator.matrixBytes(2, 4);
+        assertEquals(expected, MemoryEstimator.estimatePeak(plan));
+    }
+
+    @Test
+    void testStrassenEstimateUsesConfiguredCutoff() {
+        // 129 pads to 130 with the default cutoff of 128, but to 256 with a cutoff of 2
+        Planner planner = new Planner(2);
+        planner.setForcedKernel(KernelVariant.STRASSEN);
+        planner.setStrassenCutoff(2);
+        Plan plan = planner.plan(node(ComputationNodeType.MULTIPLY, leaf(129, 129, 1), leaf(129, 129, 1)));
+
+        assertEquals(2, plan.getSteps().get(0).getStrassenCutoff());
+        long expected = 3 * MemoryEstimator.matrixBytes(129, 129) + 6 * MemoryEstimator.matrixBytes(256, 256);
+        assertEquals(expected, MemoryEstimator.estimatePeak(plan));
+    }
+
+    @Test
+    void testLowMemoryOrderRunsHungryOperandFirst() {
+        Plan plan = plan(hungryTree());
+        Plan reordered = MemoryEstimator.lowMemoryOrder(plan);
+
+        assertEquals(plan.getSteps().size(), reordered.getSteps().size());
+        assertSame(plan.getSteps().get(1).getNode(), reordered.getSteps().get(0).getNode(),
+                "The P*Q product should now run first");
+        assertTrue(MemoryEstimator.estimatePeak(reordered) < MemoryEstimator.estimatePeak(plan));
+    }
+
+    @Test
+    void testBudgetReordersOrRejects() {
+        Plan plan = plan(hungryTree());
+        long high = MemoryEstimator.estimatePeak(plan);
+        long low = MemoryEstimator.estimatePeak(MemoryEstimator.lowMemoryOrder(plan));
+
+        LinearAlgebraEngine engine = new LinearAlgebraEngine(2);
+        engine.setMultiplyKernel(KernelVariant.NAIVE);
+        engine.setHeapBudget((high + low) / 2);
+        double[][] result = engine.run(hungryTree()).getMatrix();
+        assertEquals(low, engine.getEstimatedPeakBytes());
+        assertEquals(1 + 200.0, result[0][0], 0); // all ones
+
+        LinearAlgebraEngine tooSmall = new LinearAlgebraEngine(2);
+        tooSmall.setMultiplyKernel(KernelVariant.NAIVE);
+        tooSmall.setHeapBudget(low - 1);
+        assertThrows(RuntimeException.class, () -> tooSmall.run(hungryTree()));
+        assertEquals(0, tooSmall.getMetrics().getExecutorMetrics().getTasksSubmitted(),
+                "Rejected runs must not start any work");
+    }
+
+    @Test
+    void testAdmissionWaitsForRoom() throws InterruptedException {
+        AdmissionController admission = new AdmissionController(100);
+        admission.acquire(60);
+        assertThrows(IllegalStateException.class, () -> admission.acquire(101));
+
+        Thread second = new Thread(() -> {
+            try {
+                admission.acquire(50);
+            } catch (InterruptedException ignored) {}
+        });
+        second.start();
+        second.join(100);
+        assertTrue(second.isAlive(), "60 + 50 bytes must not be admitted together");
+
+        admission.release(60);
+        second.join(1000);
+        assertFalse(second.isAlive());
+        assertEquals(50, admission.getReserved());
+        assertEquals(1, admission.getRunning());
+    }
+
+    @Test
+    void testResizeGivesRoomBackWhileWaiting() throws InterruptedException {
+        AdmissionController admission = new AdmissionController(100);
+        admission.acquire(60);
+        admission.acquire(30);
+
+        admission.resize(60, 20); // shrinking never waits
+        assertEquals(50, admission.getReserved());
+
+        Thread grow = new Thread(() -> {
+            try {
+                admission.resize(30, 90);
+            } catch (InterruptedException ignored) {}
+        });
+        grow.start();
+        grow.join(100);
+        assertTrue(grow.isAlive(), "20 + 90 bytes must not be admitted together");
+        assertEquals(20, admission.getReserved(), "A waiting run should not hold on to its reservation");
+
+        admission.release(20);
+        grow.join(1000);
+        assertFalse(grow.isAlive());
+        assertEquals(90, admission.getReserved());
+        assertEquals(1, admission.getRunning());
+    }
+
+    @Test
+    void testInterruptedResizeDoesNotOverbook() throws InterruptedException {
+        AdmissionController admission = new AdmissionController(100);
+        admission.acquire(60);
+        admission.acquire(30);
+
+        AtomicBoolean interrupted = new AtomicBoolean();
+        Thread grow = new Thread(() -> {
+            try {
+                admission.resize(30, 90);
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            }
+        });
+        grow.start();
+        grow.join(100);
+        admission.acquire(40); // fits into the 30 bytes the waiting run gave back
+
+        grow.interrupt();
+        grow.join(100);
+        assertTrue(grow.isAlive(), "The interrupted run must wait for its 30 bytes to fit again");
+        assertEquals(100, admission.getReserved());
+
+        admission.release(40);
+        grow.join(1000);
+        assertFalse(grow.isAlive());
+        assertTrue(interrupted.get());
+        assertEquals(90, admission.getReserved(), "The interrupted run should hold its old reservation");
+    }
+
+    @Test
+    void testBatchJobParsesOnlyOnceAdmitted(@TempDir Path dir) throws Exception {
+        // each input reserves 4 bytes of heap per character before it is parsed, more than the
+        // whole 1 MB budget here, so the second job may not even parse before the first is done
+        StringBuilder json = new StringBuilder("{\"operator\": \"*\", \"operands\": [");
+        for (int m = 0; m < 2; m++) {
+            json.append(m == 0 ? "[" : ", [");
+            for (int i = 0; i < 100; i++) {
+                json.append(i == 0 ? "[" : ", [");
+                for (int j = 0; j < 100; j++)
+                    json.append(j == 0 ? "" : ", ").append(0.1234567890123456 + i - j);
+                json.append("]");
+            }
+            json.append("]");
+        }
+        json.append("]}");
+        for (int job = 0; job < 2; job++)
+            Files.writeString(dir.resolve("in" + job + ".json"), json);
+
+        Path dump = dir.resolve("batch.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("lae.Parse").withoutThreshold();
+            recording.enable("lae.Operator").withoutThreshold();
+            recording.start();
+            Main.main(new String[]{"2", dir.resolve("in0.json").toString(), dir.resolve("out0.json").toString(),
+                    dir.resolve("in1.json").toString(), dir.resolve("out1.json").toString(),
+                    "--heap-budget-mb=1", "--metrics=" + dir.resolve("metrics.json")});
+            recording.stop();
+            recording.dump(dump);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+        List<RecordedEvent> parses = events.stream().filter(e -> e.getEventType().getName().equals("lae.Parse"))
+                .sorted(Comparator.comparing(RecordedEvent::getStartTime)).collect(Collectors.toList());
+        assertEquals(2, parses.size());
+        String firstJob = parses.get(0).getThread().getJavaName();
+        Instant firstDone = events.stream().filter(e -> e.getEventType().getName().equals("lae.Operator")
+                        && e.getThread().getJavaName().equals(firstJob))
+                .map(RecordedEvent::getEndTime).max(Comparator.naturalOrder()).orElseThrow();
+        assertFalse(parses.get(1).getStartTime().isBefore(firstDone), "The second job parsed before it was admitted");
+
+        assertTrue(Files.readString(dir.resolve("out1.json")).contains("result"));
+        assertTrue(Files.exists(dir.resolve("metrics-0.json")) && Files.exists(dir.resolve("metrics-1.json")),
+                "Every batch job should write its own metrics file");
+    }
+
+    private static ComputationNode hungryTree() {
+        // (u * w) + (P * Q): the outer product leaves a big result but needs little headroom,
+        // P * Q needs a lot (column-major reload, new rows, copy out) but frees both its
+        // 200x200 operands, so it should go first
+        ComputationNode outer = node(ComputationNodeType.MULTIPLY, leaf(200, 1, 1), leaf(1, 200, 1));
+        ComputationNode square = node(ComputationNodeType.MULTIPLY, leaf(200, 200, 1), leaf(200, 200, 1));
+        return node(ComputationNodeType.ADD, outer, square);
+    }
+
+    private static Plan plan(ComputationNode root) {
+        Planner planner = new Planner(2);
+        planner.setForcedKernel(KernelVariant.NAIVE);
+        return planner.plan(root);
+    }
+
+    private static ComputationNode node(ComputationNodeType type, ComputationNode... children) {
+        return new ComputationNode(type, new LinkedList<>(List.of(children)));
+    }
+
+    private static ComputationNode leaf(int rows, int cols, double value) {
+        double[][] m = new double[rows][cols];
+        for (double[] row : m)
+            Arrays.fill(row, value);
+        return new ComputationNode(m);
+    }
+}
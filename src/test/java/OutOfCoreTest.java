@@ -0,0 +1,141 @@
+import memory.TiledMatrix;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import parser.ComputationNode;
+import parser.ComputationNodeType;
+import parser.InputParser;
+import parser.OutputWriter;
+import spl.lae.LinearAlgebraEngine;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutOfCoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testTiledMatrixRoundTrip() throws Exception {
+        double[][] m = {{1, 2, 3}, {4, 5, 6}};
+
+        try (TiledMatrix tiled = TiledMatrix.of(m, dir)) {
+            assertEquals(2, tiled.getRows());
+            assertEquals(3, tiled.getCols());
+            assertArrayEquals(m[1], tiled.readRow(1), 0);
+            assertEquals(5.0, tiled.mapRows(1, 2, false).get(1), 0);
+            assertThrows(IllegalArgumentException.class, () -> tiled.appendRow(new double[]{1}));
+        }
+    }
+
+    @Test
+    void testSmallBudgetMatchesInMemory() throws Exception {
+        // -((A * B) + C) with a budget of a few rows per task, so A, B and the results are
+        // all cut into many bands
+        Random random = new Random(7);
+        double[][] a = random(random, 37, 23), b = random(random, 23, 19), c = random(random, 37, 19);
+
+        double[][] expected = new LinearAlgebraEngine(3).run(tree(a, b, c)).getMatrix();
+
+        LinearAlgebraEngine engine = new LinearAlgebraEngine(3);
+        engine.setMemoryBudget(3 * 1024);
+        engine.setSpillDirectory(dir);
+        try (TiledMatrix result = engine.runOutOfCore(tree(a, b, c))) {
+            assertArrayEquals(expected, result.toArray());
+        }
+        try (var files = Files.list(dir)) {
+            assertEquals(0, files.count(), "Intermediate tile files should be deleted");
+        }
+
+        long peak = engine.getMetrics().getPeakTaskResidentBytes();
+        assertTrue(peak > 0 && peak <= 3 * 1024 / 3, "A task kept " + peak + " bytes resident, over its share");
+    }
+
+    @Test
+    void testRowWiderThanTaskBudget() throws Exception {
+        // Goal: with 1024 bytes per task, a product whose single row already needs more is
+        // rejected before anything is spilled, and one that just fits stays within its share.
+        Random random = new Random(11);
+        double[][] a = random(random, 5, 4), fits = random(random, 4, 40), wide = random(random, 4, 64);
+
+        LinearAlgebraEngine engine = new LinearAlgebraEngine(3);
+        engine.setMemoryBudget(3 * 1024);
+        engine.setSpillDirectory(dir);
+        ComputationNode tooWide = new ComputationNode(ComputationNodeType.MULTIPLY, new LinkedList<>(List.of(
+                new ComputationNode(copy(a)), new ComputationNode(copy(wide)))));
+        RuntimeException e = assertThrows(RuntimeException.class, () -> engine.runOutOfCore(tooWide));
+        assertTrue(e.getMessage().contains("Memory budget too small"), e.getMessage());
+        try (var files = Files.list(dir)) {
+            assertEquals(0, files.count(), "Nothing should be spilled for a rejected tree");
+        }
+
+        ComputationNode product = new ComputationNode(ComputationNodeType.MULTIPLY, new LinkedList<>(List.of(
+                new ComputationNode(copy(a)), new ComputationNode(copy(fits)))));
+        double[][] expected = new LinearAlgebraEngine(3).run(product).getMatrix();
+        LinearAlgebraEngine fitting = new LinearAlgebraEngine(3);
+        fitting.setMemoryBudget(3 * 1024);
+        fitting.setSpillDirectory(dir);
+        try (TiledMatrix result = fitting.runOutOfCore(new ComputationNode(ComputationNodeType.MULTIPLY,
+                new LinkedList<>(List.of(new ComputationNode(copy(a)), new ComputationNode(copy(fits))))))) {
+            assertArrayEquals(expected, result.toArray());
+        }
+        long peak = fitting.getMetrics().getPeakTaskResidentBytes();
+        assertTrue(peak > 0 && peak <= 1024, "A task kept " + peak + " bytes resident, over its share");
+    }
+
+    @Test
+    void testExampleThroughSpilledParser() throws Exception {
+        InputParser parser = new InputParser();
+        parser.setSpillDirectory(dir);
+        ComputationNode root = parser.parse("example.json");
+        assertTrue(root.getChildren().get(1).isTiled());
+
+        LinearAlgebraEngine engine = new LinearAlgebraEngine(4);
+        engine.setMemoryBudget(4096);
+        engine.setSpillDirectory(dir);
+        Path out = dir.resolve("out.json");
+        try (TiledMatrix result = engine.runOutOfCore(root)) {
+            OutputWriter.write(result, out.toString());
+        }
+
+        assertEquals(Files.readString(Path.of("out.json")), Files.readString(out));
+    }
+
+    @Test
+    void testUnsupportedOperatorRejected() {
+        LinearAlgebraEngine engine = new LinearAlgebraEngine(2);
+        engine.setSpillDirectory(dir);
+        ComputationNode root = new ComputationNode(ComputationNodeType.TRANSPOSE,
+                new LinkedList<>(List.of(new ComputationNode(new double[][]{{1, 2}}))));
+
+        assertThrows(RuntimeException.class, () -> engine.runOutOfCore(root));
+    }
+
+    private static ComputationNode tree(double[][] a, double[][] b, double[][] c) {
+        ComputationNode product = new ComputationNode(ComputationNodeType.MULTIPLY, new LinkedList<>(List.of(
+                new ComputationNode(copy(a)), new ComputationNode(copy(b)))));
+        ComputationNode sum = new ComputationNode(ComputationNodeType.ADD, new LinkedList<>(List.of(
+                product, new ComputationNode(copy(c)))));
+        return new ComputationNode(ComputationNodeType.NEGATE, new LinkedList<>(List.of(sum)));
+    }
+
+    private static double[][] random(Random random, int rows, int cols) {
+        double[][] m = new double[rows][cols];
+        for (double[] row : m)
+            for (int j = 0; j < cols; j++)
+                row[j] = random.nextInt(21) - 10;
+        return m;
+    }
+
+    private static double[][] copy(double[][] m) {
+        double[][] copy = new double[m.length][];
+        for (int i = 0; i < m.length; i++)
+            copy[i] = m[i].clone();
+        return copy;
+    }
+}
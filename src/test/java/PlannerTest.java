@@ -0,0 +1,120 @@
+import org.junit.jupiter.api.Test;
+import parser.ComputationNode;
+import parser.ComputationNodeType;
+import spl.lae.KernelVariant;
+import spl.lae.LinearAlgebraEngine;
+import spl.lae.Plan;
+import spl.lae.PlanStep;
+import spl.lae.Planner;
+
+import java.util.LinkedList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlannerTest {
+
+    @Test
+    void testShapesAndOrder() {
+        // T(A) * B + C with A 3x2, B 3x4, C 2x4
+        ComputationNode transpose = node(ComputationNodeType.TRANSPOSE, leaf(3, 2, 1));
+        ComputationNode multiply = node(ComputationNodeType.MULTIPLY, transpose, leaf(3, 4, 1));
+        ComputationNode root = node(ComputationNodeType.ADD, multiply, leaf(2, 4, 1));
+
+        Plan plan = new Planner(4).plan(root);
+
+        assertEquals(3, plan.getSteps().size());
+        assertSame(transpose, plan.getSteps().get(0).getNode());
+        assertSame(multiply, plan.getSteps().get(1).getNode());
+        assertSame(root, plan.getSteps().get(2).getNode());
+
+        PlanStep t = plan.stepFor(transpose);
+        assertEquals(2, t.getRows());
+        assertEquals(3, t.getCols());
+
+        PlanStep m = plan.stepFor(multiply);
+        assertEquals(2, m.getRows());
+        assertEquals(3, m.getInner());
+        assertEquals(4, m.getCols());
+        assertEquals(2L * 2 * 3 * 4, m.getEstimatedFlops());
+    }
+
+    @Test
+    void testMismatchFailsBeforeAnyWork() {
+        // the NEGATE is fine on its own, the ADD above it is not
+        ComputationNode negate = node(ComputationNodeType.NEGATE, leaf(2, 2, 1));
+        ComputationNode root = node(ComputationNodeType.ADD, negate, leaf(3, 3, 1));
+
+        assertThrows(RuntimeException.class, () -> new LinearAlgebraEngine(2).run(root));
+        assertEquals(ComputationNodeType.NEGATE, negate.getNodeType(), "No node should have been resolved");
+    }
+
+    @Test
+    void testKernelChoice() {
+        Planner planner = new Planner(4);
+
+        PlanStep small = planner.plan(node(ComputationNodeType.MULTIPLY, leaf(8, 8, 1), leaf(8, 8, 1))).getSteps().get(0);
+        assertEquals(KernelVariant.NAIVE, small.getKernel());
+
+        PlanStep sparse = planner.plan(node(ComputationNodeType.MULTIPLY, leaf(100, 100, 0), leaf(100, 100, 1))).getSteps().get(0);
+        assertEquals(KernelVariant.SPARSE, sparse.getKernel());
+
+        PlanStep tiled = planner.plan(node(ComputationNodeType.MULTIPLY, leaf(64, 200, 1), leaf(200, 200, 1))).getSteps().get(0);
+        assertEquals(KernelVariant.TILED, tiled.getKernel());
+
+        planner.setForcedKernel(KernelVariant.STRASSEN);
+        PlanStep rect = planner.plan(node(ComputationNodeType.MULTIPLY, leaf(2, 3, 1), leaf(3, 2, 1))).getSteps().get(0);
+        assertNotEquals(KernelVariant.STRASSEN, rect.getKernel(), "Strassen does not apply to non-square operands");
+    }
+
+    @Test
+    void testGranularityGroupsCheapRows() {
+        PlanStep step = new Planner(2).plan(node(ComputationNodeType.NEGATE, leaf(1000, 4, 1))).getSteps().get(0);
+
+        assertTrue(step.getRowsPerTask() > 1);
+        assertTrue(step.getRowsPerTask() <= 1000 / (2 * Planner.TASKS_PER_THREAD) + 1);
+    }
+
+    @Test
+    void testForcedKernelsAgree() {
+        double[][] expected = null;
+        for (KernelVariant kernel : KernelVariant.values()) {
+            LinearAlgebraEngine engine = new LinearAlgebraEngine(3);
+            engine.setMultiplyKernel(kernel);
+            engine.setStrassenCutoff(2);
+            ComputationNode root = node(ComputationNodeType.MULTIPLY, leaf(9, 9, 0.5), leaf(9, 9, 1));
+
+            double[][] actual = engine.run(root).getMatrix();
+            if (expected == null)
+                expected = actual;
+            for (int i = 0; i < expected.length; i++)
+                assertArrayEquals(expected[i], actual[i], 1e-9, kernel + " row " + i);
+        }
+    }
+
+    @Test
+    void testExplainIncludesActualTimings() {
+        LinearAlgebraEngine engine = new LinearAlgebraEngine(2);
+        engine.run(node(ComputationNodeType.ADD, leaf(4, 4, 1), leaf(4, 4, 1)));
+
+        Plan plan = engine.getLastPlan();
+        assertTrue(plan.getSteps().get(0).getActualNanos() >= 0);
+        assertTrue(plan.explain().contains("ms"));
+    }
+
+    private static ComputationNode node(ComputationNodeType type, ComputationNode... children) {
+        LinkedList<ComputationNode> list = new LinkedList<>();
+        for (ComputationNode child : children)
+            list.add(child);
+        return new ComputationNode(type, list);
+    }
+
+    private static ComputationNode leaf(int rows, int cols, double density) {
+        // deterministic fill: roughly `density` of the entries are non-zero
+        double[][] m = new double[rows][cols];
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++)
+                if (((i * 31 + j * 17) % 100) < density * 100)
+                    m[i][j] = (i + 1) * 0.5 - j;
+        return new ComputationNode(m);
+    }
+}
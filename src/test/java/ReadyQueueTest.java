@@ -0,0 +1,62 @@
+import org.junit.jupiter.api.Test;
+import parser.ComputationNode;
+import parser.ComputationNodeType;
+import spl.lae.LinearAlgebraEngine;
+import spl.lae.Plan;
+import spl.lae.PlanStep;
+import spl.lae.Planner;
+import spl.lae.ReadyQueue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadyQueueTest {
+
+    @Test
+    void testOrderMatchesFindResolvable() {
+        // (-(A + B)) * (T(C) + -D) + E
+        ComputationNode left = node(ComputationNodeType.NEGATE, node(ComputationNodeType.ADD, leaf(1), leaf(2)));
+        ComputationNode right = node(ComputationNodeType.ADD,
+                node(ComputationNodeType.TRANSPOSE, leaf(3)), node(ComputationNodeType.NEGATE, leaf(4)));
+        ComputationNode root = node(ComputationNodeType.ADD, node(ComputationNodeType.MULTIPLY, left, right), leaf(5));
+
+        Plan plan = new Planner(2).plan(root);
+        ReadyQueue ready = new ReadyQueue(plan);
+
+        int resolved = 0;
+        while (!ready.isEmpty()) {
+            PlanStep step = ready.poll();
+            assertSame(root.findResolvable(), step.getNode());
+            step.getNode().resolve(new double[][]{{0}});
+            ready.complete(step);
+            resolved++;
+        }
+
+        assertEquals(plan.getSteps().size(), resolved);
+        assertEquals(0, ready.remaining());
+        assertEquals(ComputationNodeType.MATRIX, root.getNodeType());
+    }
+
+    @Test
+    void testManySmallNodes() {
+        // sum of 2000 negated 1x1 matrices: 3999 operator nodes after nesting
+        List<ComputationNode> operands = new ArrayList<>();
+        for (int i = 1; i <= 2000; i++)
+            operands.add(node(ComputationNodeType.NEGATE, leaf(i)));
+        ComputationNode root = new ComputationNode(ComputationNodeType.ADD, operands);
+
+        ComputationNode result = new LinearAlgebraEngine(4).run(root);
+
+        assertEquals(-2000.0 * 2001 / 2, result.getMatrix()[0][0], 1e-6);
+    }
+
+    private static ComputationNode node(ComputationNodeType type, ComputationNode... children) {
+        return new ComputationNode(type, new ArrayList<>(List.of(children)));
+    }
+
+    private static ComputationNode leaf(double value) {
+        return new ComputationNode(new double[][]{{value}});
+    }
+}
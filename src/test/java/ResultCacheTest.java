@@ -0,0 +1,98 @@
+import org.junit.jupiter.api.Test;
+import parser.ComputationNode;
+import parser.ComputationNodeType;
+import spl.lae.KernelVariant;
+import spl.lae.LinearAlgebraEngine;
+import spl.lae.ResultCache;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResultCacheTest {
+
+    @Test
+    void testKeysAreContentBased() {
+        double[][] a = {{1, 2}, {3, 4}};
+        double[][] sameAsA = {{1, 2}, {3, 4}};
+        double[][] reshaped = {{1, 2, 3, 4}};
+
+        assertEquals(ResultCache.keyOf(a), ResultCache.keyOf(sameAsA));
+        assertNotEquals(ResultCache.keyOf(a), ResultCache.keyOf(reshaped));
+        assertNotEquals(ResultCache.keyOf(new double[][]{{0.0}}), ResultCache.keyOf(new double[][]{{-0.0}}));
+
+        ResultCache.Key k = ResultCache.keyOf(a);
+        ResultCache.Key r = ResultCache.keyOf(reshaped);
+        assertNotEquals(ResultCache.keyOf(ComputationNodeType.ADD, KernelVariant.NAIVE, k, r),
+                ResultCache.keyOf(ComputationNodeType.ADD, KernelVariant.NAIVE, r, k), "Operand order matters");
+    }
+
+    @Test
+    void testHitsReturnPrivateCopies() {
+        ResultCache cache = new ResultCache(1 << 20);
+        ResultCache.Key key = ResultCache.keyOf(new double[][]{{7}});
+        double[][] value = {{1, 2}};
+
+        assertNull(cache.get(key));
+        cache.put(key, value);
+        value[0][0] = 99;
+
+        double[][] hit = cache.get(key);
+        assertEquals(1, hit[0][0], 0);
+        hit[0][1] = 99;
+        assertEquals(2, cache.get(key)[0][1], 0);
+
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void testLeastRecentlyUsedEvictedFirst() {
+        double[][] block = new double[1][100]; // ~840 bytes with headers
+        ResultCache cache = new ResultCache(2000);
+        ResultCache.Key a = ResultCache.keyOf(new double[][]{{1}});
+        ResultCache.Key b = ResultCache.keyOf(new double[][]{{2}});
+        ResultCache.Key c = ResultCache.keyOf(new double[][]{{3}});
+
+        cache.put(a, block);
+        cache.put(b, block);
+        cache.get(a);          // b is now the least recently used
+        cache.put(c, block);
+
+        assertTrue(cache.contains(a));
+        assertFalse(cache.contains(b));
+        assertTrue(cache.contains(c));
+        assertEquals(1, cache.getEvictions());
+        assertTrue(cache.getBytes() <= 2000);
+    }
+
+    @Test
+    void testSecondRunIsServedFromCache() {
+        ResultCache cache = new ResultCache(1 << 20);
+        double[][] expected = {{-19, -22}, {-43, -50}};
+
+        for (int run = 0; run < 2; run++) {
+            LinearAlgebraEngine engine = new LinearAlgebraEngine(2);
+            engine.setResultCache(cache);
+            ComputationNode result = engine.run(node(ComputationNodeType.NEGATE,
+                    node(ComputationNodeType.MULTIPLY, leaf(new double[][]{{1, 2}, {3, 4}}), leaf(new double[][]{{5, 6}, {7, 8}}))));
+
+            for (int i = 0; i < expected.length; i++)
+                assertArrayEquals(expected[i], result.getMatrix()[i], 0);
+
+            if (run == 1)
+                assertTrue(engine.getLastPlan().getSteps().isEmpty(), "Whole tree should come from the cache");
+        }
+
+        assertEquals(1, cache.getHits());
+    }
+
+    private static ComputationNode node(ComputationNodeType type, ComputationNode... children) {
+        return new ComputationNode(type, new ArrayList<>(List.of(children)));
+    }
+
+    private static ComputationNode leaf(double[][] m) {
+        return new ComputationNode(m);
+    }
+}
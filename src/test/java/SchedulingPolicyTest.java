@@ -0,0 +1,67 @@
+package scheduling;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SchedulingPolicyTest {
+
+    @Test
+    void testSelectionOrder() {
+        TiredThread a = new TiredThread(0, 2.0);
+        TiredThread b = new TiredThread(1, 1.0);
+        TiredThread c = new TiredThread(2, 1.5);
+        a.addTimeUsed(100); // fatigue 200, load 100
+        b.addTimeUsed(300); // fatigue 300, load 300
+        c.addTimeUsed(50);  // fatigue 75,  load 50
+
+        assertEquals(List.of(c, a, b), drain(new FatigueMinPolicy(), a, b, c));
+        assertEquals(List.of(c, a, b), drain(new LeastLoadedPolicy(), a, b, c));
+        assertEquals(List.of(c, b, a), drain(new CacheAffinityPolicy(), a, b, c));
+
+        RoundRobinPolicy roundRobin = new RoundRobinPolicy();
+        assertEquals(List.of(a, b, c), drain(roundRobin, c, b, a));
+        roundRobin.workerIdle(a);
+        roundRobin.workerIdle(c);
+        assertSame(a, roundRobin.selectWorker(), "Cursor wraps around after the last worker");
+        assertSame(c, roundRobin.selectWorker());
+        assertNull(roundRobin.selectWorker());
+    }
+
+    @Test
+    void testEveryPolicyRunsAllTasks() {
+        for (String name : List.of("fatigue-min", "round-robin", "least-loaded", "cache-affinity")) {
+            TiredExecutor executor = new TiredExecutor(3, SchedulingPolicy.forName(name), 7);
+            try {
+                AtomicInteger counter = new AtomicInteger();
+                List<Runnable> tasks = new ArrayList<>();
+                for (int i = 0; i < 50; i++)
+                    tasks.add(counter::incrementAndGet);
+
+                executor.submitAll(tasks);
+
+                assertEquals(50, counter.get(), name);
+                assertTrue(executor.getWorkerReport().contains("Policy : " + name));
+                assertTrue(executor.getWorkerReport().contains("Throughput"));
+            } finally {
+                executor.shutdown();
+            }
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> SchedulingPolicy.forName("random"));
+    }
+
+    private static List<TiredThread> drain(SchedulingPolicy policy, TiredThread... idle) {
+        for (TiredThread worker : idle)
+            policy.workerIdle(worker);
+
+        List<TiredThread> order = new ArrayList<>();
+        while (policy.hasIdleWorker())
+            order.add(policy.selectWorker());
+        return order;
+    }
+}
@@ -1,5 +1,6 @@
 
 
+import memory.LockStats;
 import memory.SharedMatrix;
 import memory.SharedVector;
 import memory.VectorOrientation;
@@ -210,7 +211,30 @@ public class SharedVectorTest {
         assertTrue(flag);
     }
 
-
-
-
-}
\ No newline at end of file
+    @Test
+    void LockStatsCountContention() throws Exception {
+        SharedMatrix matrix = new SharedMatrix(new double[][]{{1.0, 2.0}, {3.0, 4.0}});
+        LockStats stats = new LockStats();
+        matrix.setLockStats(stats);
+        SharedVector row = matrix.get(0);
+
+        row.negate();
+        assertEquals(1, stats.getWriteAcquisitions());
+        assertEquals(0, stats.getWriteContended());
+
+        row.writeLock();
+        Thread reader = new Thread(() -> row.get(0));
+        reader.start();
+        Thread.sleep(50);
+        row.writeUnlock();
+        reader.join();
+
+        assertEquals(1, stats.getReadAcquisitions());
+        assertEquals(1, stats.getReadContended());
+        assertTrue(stats.getReadWaitNanos() > 0);
+
+        matrix.setLockStats(null);
+        row.negate();
+        assertEquals(2, stats.getWriteAcquisitions());
+    }
+}
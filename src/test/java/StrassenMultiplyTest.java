@@ -0,0 +1,109 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import parser.ComputationNode;
+import parser.ComputationNodeType;
+import scheduling.TiredExecutor;
+import spl.lae.BlockedMultiply;
+import spl.lae.KernelVariant;
+import spl.lae.LinearAlgebraEngine;
+import spl.lae.StrassenMultiply;
+
+import java.util.LinkedList;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StrassenMultiplyTest {
+
+    private TiredExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = new TiredExecutor(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void testMatchesClassicOnOddSize() {
+        // 150 is not a power of two, so this also covers the zero padding
+        double[][] a = random(150, 1);
+        double[][] b = random(150, 2);
+
+        double[][] expected = BlockedMultiply.multiply(a, b);
+        double[][] actual = new StrassenMultiply(16).multiply(a, b, executor);
+
+        assertWithinBound(expected, actual, a, b, 16);
+    }
+
+    @Test
+    void testBelowCutoffUsesBaseKernel() {
+        double[][] a = {{1, 2}, {3, 4}};
+        double[][] b = {{5, 6}, {7, 8}};
+
+        double[][] actual = new StrassenMultiply().multiply(a, b, executor);
+
+        assertArrayEquals(new double[]{19, 22}, actual[0], 0);
+        assertArrayEquals(new double[]{43, 50}, actual[1], 0);
+    }
+
+    @Test
+    void testRejectsNonSquare() {
+        double[][] a = {{1, 2, 3}, {4, 5, 6}};
+        double[][] b = {{1, 2}, {3, 4}, {5, 6}};
+
+        assertThrows(IllegalArgumentException.class, () -> new StrassenMultiply(1).multiply(a, b, executor));
+    }
+
+    @Test
+    void testEngineWithForcedStrassen() {
+        double[][] a = random(40, 3);
+        double[][] b = random(40, 4);
+        double[][] expected = BlockedMultiply.multiply(a, b);
+
+        LinearAlgebraEngine engine = new LinearAlgebraEngine(4);
+        engine.setMultiplyKernel(KernelVariant.STRASSEN);
+        engine.setStrassenCutoff(8);
+
+        LinkedList<ComputationNode> children = new LinkedList<>();
+        children.add(new ComputationNode(a));
+        children.add(new ComputationNode(b));
+        ComputationNode result = engine.run(new ComputationNode(ComputationNodeType.MULTIPLY, children));
+
+        assertWithinBound(expected, result.getMatrix(), a, b, 8);
+    }
+
+    private static void assertWithinBound(double[][] expected, double[][] actual, double[][] a, double[][] b, int cutoff) {
+        // normwise Strassen-Winograd bound documented in StrassenMultiply
+        int n = a.length;
+        double u = Math.ulp(1.0) / 2;
+        double factor = Math.pow((double) n / cutoff, Math.log(18) / Math.log(2)) * (cutoff * cutoff + 6.0 * cutoff) - 6.0 * n;
+        double bound = Math.max(factor, n) * u * maxAbs(a) * maxAbs(b);
+
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++)
+            for (int j = 0; j < expected[i].length; j++)
+                assertEquals(expected[i][j], actual[i][j], bound, "Mismatch at [" + i + "][" + j + "]");
+    }
+
+    private static double maxAbs(double[][] m) {
+        double max = 0;
+        for (double[] row : m)
+            for (double v : row)
+                max = Math.max(max, Math.abs(v));
+        return max;
+    }
+
+    private static double[][] random(int n, long seed) {
+        Random rand = new Random(seed);
+        double[][] m = new double[n][n];
+        for (int i = 0; i < n; i++)
+            for (int j = 0; j < n; j++)
+                m[i][j] = rand.nextDouble() * 2 - 1;
+        return m;
+    }
+}
@@ -0,0 +1,52 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import parser.ComputationNode;
+import parser.InputParser;
+import parser.OutputWriter;
+import parser.StreamingOutputWriter;
+import spl.lae.LinearAlgebraEngine;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingOutputWriterTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testOutOfOrderRowsMatchOutputWriter() throws Exception {
+        double[][] matrix = {{1, 2}, {3, 4}, {5, 6}};
+        Path expected = dir.resolve("expected.json");
+        Path streamed = dir.resolve("streamed.json");
+        OutputWriter.write(matrix, expected.toString());
+
+        StreamingOutputWriter writer = new StreamingOutputWriter(streamed.toString());
+        writer.begin(3, 2);
+        writer.row(2, matrix[2]);
+        writer.row(0, matrix[0]);
+        writer.finish(matrix); // row 1 was never handed over
+
+        assertEquals(Files.readString(expected), Files.readString(streamed));
+    }
+
+    @Test
+    void testEngineStreamsRootRows() throws Exception {
+        Path expected = dir.resolve("expected.json");
+        Path streamed = dir.resolve("streamed.json");
+
+        ComputationNode root = new LinearAlgebraEngine(4).run(new InputParser().parse("example.json"));
+        OutputWriter.write(root.getMatrix(), expected.toString());
+
+        StreamingOutputWriter writer = new StreamingOutputWriter(streamed.toString());
+        LinearAlgebraEngine engine = new LinearAlgebraEngine(4);
+        engine.setResultStream(writer);
+        root = engine.run(new InputParser().parse("example.json"));
+        assertTrue(writer.isStarted(), "Root rows should be streamed while the root computes");
+        writer.finish(root.getMatrix());
+
+        assertEquals(Files.readString(expected), Files.readString(streamed));
+    }
+}
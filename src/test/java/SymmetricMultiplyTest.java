@@ -0,0 +1,80 @@
+import org.junit.jupiter.api.Test;
+import parser.ComputationNode;
+import parser.ComputationNodeType;
+import spl.lae.KernelVariant;
+import spl.lae.LinearAlgebraEngine;
+import spl.lae.Plan;
+import spl.lae.Planner;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SymmetricMultiplyTest {
+
+    @Test
+    void testPlannerFoldsTransposeIntoGramProduct() {
+        double[][] a = matrix(9, 4, 0);
+        Plan plan = new Planner(2).plan(gram(a, false));
+
+        assertEquals(2, plan.getSteps().size());
+        assertTrue(plan.getSteps().get(0).isElided());
+        assertEquals(KernelVariant.SYRK, plan.getSteps().get(1).getKernel());
+        assertEquals(9, plan.getSteps().get(1).getRows());
+
+        // same shape, different contents: an ordinary product
+        ComputationNode other = node(ComputationNodeType.MULTIPLY, new ComputationNode(a),
+                node(ComputationNodeType.TRANSPOSE, new ComputationNode(matrix(9, 4, 1))));
+        Plan general = new Planner(2).plan(other);
+        assertFalse(general.getSteps().get(0).isElided());
+        assertNotEquals(KernelVariant.SYRK, general.getSteps().get(1).getKernel());
+    }
+
+    @Test
+    void testGramProductsMatchNaiveBitForBit() {
+        for (int rows : new int[]{1, 6, 11})
+            for (boolean transposedFirst : new boolean[]{false, true}) {
+                double[][] a = matrix(rows, 5, rows);
+                LinearAlgebraEngine naive = new LinearAlgebraEngine(3);
+                naive.setMultiplyKernel(KernelVariant.NAIVE);
+                double[][] expected = naive.run(gram(a, transposedFirst)).getMatrix();
+
+                LinearAlgebraEngine engine = new LinearAlgebraEngine(3);
+                double[][] actual = engine.run(gram(a, transposedFirst)).getMatrix();
+
+                assertEquals(KernelVariant.SYRK, engine.getLastPlan().getSteps().get(1).getKernel());
+                assertEquals(expected.length, actual.length);
+                for (int i = 0; i < expected.length; i++)
+                    for (int j = 0; j < expected[i].length; j++)
+                        assertEquals(Double.doubleToRawLongBits(expected[i][j]), Double.doubleToRawLongBits(actual[i][j]),
+                                rows + (transposedFirst ? " T(A)*A" : " A*T(A)") + " at " + i + "," + j);
+            }
+    }
+
+    private static ComputationNode gram(double[][] a, boolean transposedFirst) {
+        // two leaves with equal contents, as the parser produces for A written twice
+        ComputationNode t = node(ComputationNodeType.TRANSPOSE, new ComputationNode(copy(a)));
+        ComputationNode plain = new ComputationNode(copy(a));
+        return transposedFirst ? node(ComputationNodeType.MULTIPLY, t, plain) : node(ComputationNodeType.MULTIPLY, plain, t);
+    }
+
+    private static ComputationNode node(ComputationNodeType type, ComputationNode... children) {
+        return new ComputationNode(type, new LinkedList<>(List.of(children)));
+    }
+
+    private static double[][] matrix(int rows, int cols, int seed) {
+        double[][] m = new double[rows][cols];
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++)
+                m[i][j] = 0.37 * ((i * 7 + j * 13 + seed) % 11) - 1.9;
+        return m;
+    }
+
+    private static double[][] copy(double[][] m) {
+        double[][] c = new double[m.length][];
+        for (int i = 0; i < m.length; i++)
+            c[i] = m[i].clone();
+        return c;
+    }
+}
@@ -5,6 +5,8 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -69,6 +71,179 @@ class TiredExecutorTest {
         assertTrue((endTime - startTime) >= sleepTime, "submitAll should block until tasks are finished.");
     }
 
+    @Test
+    void testSubmitAllRunsCostliestTasksFirst() {
+        // Goal: with a single worker, run order must be longest-processing-time-first,
+        // equal costs keeping submission order and plain Runnables (cost 0) going last.
+        executor.shutdown();
+        executor = new TiredExecutor(1);
+
+        List<String> order = java.util.Collections.synchronizedList(new ArrayList<>());
+        List<Runnable> tasks = new ArrayList<>();
+        tasks.add(() -> order.add("plain"));
+        tasks.add(new TiredTask(() -> order.add("small"), 10));
+        tasks.add(new TiredTask(() -> order.add("big-1"), 1000));
+        tasks.add(new TiredTask(() -> order.add("medium"), 100));
+        tasks.add(new TiredTask(() -> order.add("big-2"), 1000));
+
+        executor.submitAll(tasks);
+
+        assertEquals(List.of("big-1", "big-2", "medium", "small", "plain"), order);
+    }
+
+    @Test
+    void testStragglerIsSpeculativelyReExecuted() throws InterruptedException {
+        // Goal: the first attempt of one task hangs; its duplicate must finish the batch,
+        // commit exactly once, and the hung attempt's late result must be dropped.
+        executor.setSpeculation(2.0);
+
+        java.util.concurrent.CountDownLatch release = new java.util.concurrent.CountDownLatch(1);
+        AtomicInteger attempts = new AtomicInteger(0);
+        AtomicInteger commits = new AtomicInteger(0);
+        List<Runnable> tasks = new ArrayList<>();
+        tasks.add(new SpeculativeTask<Integer>(() -> {
+            if (attempts.incrementAndGet() == 1)
+                try {
+                    release.await();
+                } catch (InterruptedException ignored) {}
+            return 1;
+        }, commits::addAndGet, 100));
+        for (int i = 0; i < 4; i++)
+            tasks.add(new TiredTask(() -> {}, 1));
+
+        executor.submitAll(tasks);
+
+        assertEquals(1, commits.get());
+        assertEquals(2, attempts.get());
+        assertEquals(1, executor.getMetrics().getSpeculativeLaunches());
+        assertEquals(1, executor.getMetrics().getSpeculativeWins());
+
+        release.countDown();
+        executor.submitAll(List.of(() -> {}));
+        assertEquals(1, commits.get(), "Losing attempt must not commit");
+    }
+
+    @Test
+    void testAffinityKeepsKeysOnTheirWorker() {
+        // Goal: in affinity mode a keyed task goes back to the worker that ran its key last.
+        executor.setAffinity(true);
+
+        java.util.Map<Integer, Thread> first = new java.util.concurrent.ConcurrentHashMap<>();
+        java.util.Map<Integer, Thread> second = new java.util.concurrent.ConcurrentHashMap<>();
+        for (java.util.Map<Integer, Thread> ranOn : List.of(first, second)) {
+            List<Runnable> tasks = new ArrayList<>();
+            for (int key = 0; key < THREAD_COUNT; key++) {
+                int k = key;
+                tasks.add(new TiredTask(() -> ranOn.put(k, Thread.currentThread()), 1, k));
+            }
+            executor.submitAll(tasks);
+        }
+
+        assertEquals(first, second);
+        assertEquals(THREAD_COUNT, executor.getMetrics().getAffinityHits());
+        assertEquals(0, executor.getMetrics().getAffinitySteals());
+    }
+
+    @Test
+    void testElasticPoolGrowsAndRetires() throws InterruptedException {
+        // Goal: a burst grows the pool up to max; idle workers then retire back down to min,
+        // and retired workers stay in the report.
+        executor.shutdown();
+        executor = new TiredExecutor(1, 3, 50, new FatigueMinPolicy());
+
+        java.util.concurrent.CountDownLatch release = new java.util.concurrent.CountDownLatch(1);
+        Thread submitter = new Thread(() -> {
+            List<Runnable> tasks = new ArrayList<>();
+            for (int i = 0; i < 3; i++)
+                tasks.add(() -> {
+                    try {
+                        release.await();
+                    } catch (InterruptedException ignored) {}
+                });
+            executor.submitAll(tasks);
+        });
+        submitter.start();
+
+        long deadline = System.currentTimeMillis() + 2000;
+        while (executor.getPoolSize() < 3 && System.currentTimeMillis() < deadline)
+            Thread.sleep(5);
+        assertEquals(3, executor.getPoolSize(), "Burst should grow the pool to its maximum");
+
+        release.countDown();
+        submitter.join();
+
+        deadline = System.currentTimeMillis() + 2000;
+        while (executor.getPoolSize() > 1 && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        assertEquals(1, executor.getPoolSize(), "Idle workers should retire down to the minimum");
+
+        String report = executor.getWorkerReport();
+        assertTrue(report.contains("Worker 2"));
+        assertTrue(report.contains("(retired)"));
+
+        // the pool grows again on the next burst
+        AtomicInteger counter = new AtomicInteger(0);
+        executor.submitAll(List.of(counter::incrementAndGet, counter::incrementAndGet));
+        assertEquals(2, counter.get());
+    }
+
+    @Test
+    void testSpinHandoffRunsAllTasks() throws InterruptedException {
+        // Goal: the lock-free handoff must run every task exactly once, across many batches,
+        // including speculative ones and with a single submitter parked between completions.
+        executor.shutdown();
+        executor = new TiredExecutor(THREAD_COUNT, THREAD_COUNT, 0, new FatigueMinPolicy(), true);
+        executor.setSpeculation(4.0);
+
+        AtomicInteger counter = new AtomicInteger(0);
+        for (int batch = 0; batch < 200; batch++) {
+            List<Runnable> tasks = new ArrayList<>();
+            for (int i = 0; i < 10; i++)
+                tasks.add(counter::incrementAndGet);
+            executor.submitAll(tasks);
+            assertEquals((batch + 1) * 10, counter.get());
+        }
+
+        CountDownLatch single = new CountDownLatch(1);
+        executor.submit(single::countDown);
+        assertTrue(single.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testSpinHandoffRetiresWhileSubmitterWaits() throws InterruptedException {
+        // Goal: in spin-handoff mode a worker whose idle timeout expires must not wait for the
+        // monitor a parked submitter holds, or the submitter's next task on it never runs.
+        executor.shutdown();
+        executor = new TiredExecutor(1, 2, 30, new FatigueMinPolicy(), true);
+
+        AtomicInteger counter = new AtomicInteger(0);
+        Thread submitter = new Thread(() -> {
+            for (int round = 0; round < 20; round++) {
+                executor.submitAll(List.of(() -> sleep(100)));
+                List<Runnable> tasks = new ArrayList<>();
+                for (int i = 0; i < 3; i++)
+                    tasks.add(() -> {
+                        sleep(1);
+                        counter.incrementAndGet();
+                    });
+                executor.submitAll(tasks);
+            }
+        });
+        submitter.setDaemon(true);
+        submitter.start();
+        submitter.join(20_000);
+
+        assertFalse(submitter.isAlive(), "Submitter deadlocked with a retiring worker");
+        assertEquals(60, counter.get());
+        assertTrue(executor.getPoolSize() >= 1);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ignored) {}
+    }
+
     @Test
     void testWorkerReportGeneration() {
         // Goal: Verify the report string is formatted correctly and not empty.
@@ -150,4 +150,47 @@ public class TiredThreadTest {
         assertTrue(idleTimeNanos >= minExpectedNanos,
                 "Idle time (" + idleTimeNanos + ") should be >= waited time (" + minExpectedNanos + ")");
     }
-}
\ No newline at end of file
+
+    @Test
+    void testSpinHandoffRunsTasks() throws InterruptedException {
+        // Goal: a worker fed through the lock-free slot runs every task, including ones
+        // that arrive after it has given up spinning and parked.
+
+        worker = new TiredThread(3, 1.0, true);
+        assertTrue(worker.isSpinHandoff());
+        worker.start();
+
+        CountDownLatch first = new CountDownLatch(1);
+        worker.newTask(first::countDown);
+        assertTrue(first.await(1, TimeUnit.SECONDS));
+
+        Thread.sleep(50); // long enough to get past spinning and yielding
+        CountDownLatch second = new CountDownLatch(1);
+        worker.newTask(second::countDown);
+        assertTrue(second.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testHandoffSlot() throws InterruptedException {
+        // Goal: the slot holds one task, times out when empty, and wakes a parked taker.
+
+        HandoffSlot slot = new HandoffSlot();
+        Runnable a = () -> {};
+        Runnable b = () -> {};
+
+        assertNull(slot.poll(TimeUnit.MILLISECONDS.toNanos(5)));
+        assertTrue(slot.offer(a));
+        assertFalse(slot.offer(b), "Slot should hold at most one task");
+        assertSame(a, slot.take());
+        assertThrows(NullPointerException.class, () -> slot.offer(null));
+
+        Runnable[] taken = new Runnable[1];
+        Thread taker = new Thread(() -> taken[0] = slot.take());
+        taker.start();
+        Thread.sleep(50);
+        slot.put(b);
+        taker.join(1000);
+        assertFalse(taker.isAlive());
+        assertSame(b, taken[0]);
+    }
+}
@@ -0,0 +1,61 @@
+import org.junit.jupiter.api.Test;
+import parser.ComputationNode;
+import parser.ComputationNodeType;
+import spl.lae.KernelVariant;
+import spl.lae.LinearAlgebraEngine;
+import spl.lae.PlanStep;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VectorMultiplyTest {
+
+    @Test
+    void testVectorShapesMatchNaiveBitForBit() {
+        // {m, k, n}: GEMV, row vector × matrix, tall and short outer products
+        int[][] shapes = {{40, 30, 1}, {1, 30, 300}, {100, 1, 20}, {3, 1, 500}, {1, 1, 1}};
+        KernelVariant[] kernels = {KernelVariant.GEMV, KernelVariant.GEMV, KernelVariant.OUTER,
+                KernelVariant.OUTER, KernelVariant.OUTER};
+
+        for (int s = 0; s < shapes.length; s++) {
+            int m = shapes[s][0], k = shapes[s][1], n = shapes[s][2];
+            LinearAlgebraEngine naive = new LinearAlgebraEngine(4);
+            naive.setMultiplyKernel(KernelVariant.NAIVE);
+            double[][] expected = naive.run(product(m, k, n)).getMatrix();
+
+            LinearAlgebraEngine engine = new LinearAlgebraEngine(4);
+            double[][] actual = engine.run(product(m, k, n)).getMatrix();
+
+            PlanStep step = engine.getLastPlan().getSteps().get(0);
+            assertEquals(kernels[s], step.getKernel(), m + "x" + k + "x" + n);
+            for (int i = 0; i < m; i++)
+                for (int j = 0; j < n; j++)
+                    assertEquals(Double.doubleToRawLongBits(expected[i][j]), Double.doubleToRawLongBits(actual[i][j]),
+                            m + "x" + k + "x" + n + " at " + i + "," + j);
+        }
+    }
+
+    @Test
+    void testSingleRowResultIsSplitByColumns() {
+        LinearAlgebraEngine engine = new LinearAlgebraEngine(4);
+        engine.run(product(1, 200, 400));
+
+        assertTrue(engine.getLastPlan().getSteps().get(0).getActualTasks() > 1,
+                "A row vector result should still be spread over the workers");
+    }
+
+    private static ComputationNode product(int m, int k, int n) {
+        return new ComputationNode(ComputationNodeType.MULTIPLY,
+                new LinkedList<>(List.of(new ComputationNode(matrix(m, k, 1)), new ComputationNode(matrix(k, n, 2)))));
+    }
+
+    private static double[][] matrix(int rows, int cols, int seed) {
+        double[][] m = new double[rows][cols];
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++)
+                m[i][j] = 0.3 * ((i * 11 + j * 5 + seed) % 13) - 1.7;
+        return m;
+    }
+}